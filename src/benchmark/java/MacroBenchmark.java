@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * End to end quotes against generated markets of every {@link MarketGenerator.Shape}, printing one CSV line of
+ * {@link #HEADER} per market and scenario so runs can be compared:
+ * <ul>
+ * <li>main: {@link Main#main(String[])} quoting £1000 and £15000, reading the CSV file for each quote</li>
+ * <li>loan: the market loaded once, then every valid amount quoted {@link #LOAN_ROUNDS} times, quotes per second
+ * not counting the load</li>
+ * </ul>
+ * Peak RSS is reset before every scenario where Linux allows it, and is -1 where it can not be read.
+ * <p>
+ * {@code java -Xmx4g MacroBenchmark markets 300MB 42} generates the markets in the markets directory, once.
+ */
+class MacroBenchmark {
+
+    static final String HEADER =
+            "Market,Scenario,Lenders,File MB,Quotes,Served,Wall ms,Load ms,Quotes/s,GCs,GC ms,Peak RSS MB";
+    static final int LOAN_ROUNDS = 100;
+    private static final String[] MAIN_AMOUNTS = {"1000", "15000"};
+
+    private final Path directory;
+    private final String size;
+    private final long seed;
+
+    /**
+     * @param size lenders of each market, or its size such as 300MB
+     */
+    MacroBenchmark(Path directory, String size, long seed) {
+        this.directory = directory;
+        this.size = size;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            throw new IllegalArgumentException("Arguments should be: directory of the markets, lenders or size "
+                    + "such as 300MB, and optionally the seed");
+        }
+        MacroBenchmark benchmark = new MacroBenchmark(Paths.get(args[0]), args[1],
+                args.length == 3 ? Long.parseLong(args[2]) : 42);
+        System.out.println(HEADER);
+        for (MarketGenerator.Shape shape : MarketGenerator.Shape.values()) {
+            for (Result result : benchmark.run(shape)) {
+                System.out.println(result);
+            }
+        }
+    }
+
+    /**
+     * Generates the market unless a previous run did, then runs every scenario against it.
+     *
+     * @throws IOException if writing or reading the market
+     */
+    List<Result> run(MarketGenerator.Shape shape) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("market-" + shape + "-" + size + "-" + seed + ".csv");
+        long lenders;
+        if (Files.isRegularFile(file)) {
+            try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                lenders = lines.count() - 1;
+            }
+        } else {
+            long bytes = MarketGenerator.parseBytes(size);
+            lenders = new MarketGenerator(seed).write(file, shape, bytes < 0 ? Long.parseLong(size) : Long.MAX_VALUE,
+                    bytes < 0 ? Long.MAX_VALUE : bytes);
+        }
+        List<Result> results = new ArrayList<>();
+        results.add(runMain(shape, file, lenders));
+        results.add(runLoan(shape, file, lenders));
+        return results;
+    }
+
+    private static Result runMain(MarketGenerator.Shape shape, Path file, long lenders) throws IOException {
+        Result result = new Result(shape, "main", lenders, Files.size(file));
+        PrintStream out = System.out;
+        CountingStream quotes = new CountingStream();
+        System.setOut(new PrintStream(quotes, true, "UTF-8"));
+        try {
+            for (String amount : MAIN_AMOUNTS) {
+                Main.main(new String[] {file.toString(), amount});
+            }
+        } finally {
+            System.setOut(out);
+        }
+        result.stop(MAIN_AMOUNTS.length, quotes.served);
+        return result;
+    }
+
+    private static Result runLoan(MarketGenerator.Shape shape, Path file, long lenders) throws IOException {
+        Result result = new Result(shape, "loan", lenders, Files.size(file));
+        Loan loan = new Loan();
+        FixedPointBook book = LenderStore.load(file.toString(), new MappedCSV()).toFixedPointBook();
+        result.loaded();
+        long served = 0;
+        for (int round = 0; round < LOAN_ROUNDS; round++) {
+            for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += Loan.AMOUNT_STEP) {
+                if (loan.calculate(book, amount).isPresent()) {
+                    served++;
+                }
+            }
+        }
+        result.stop((long) LOAN_ROUNDS * Loan.AMOUNT_STEPS, served);
+        return result;
+    }
+
+    /**
+     * @return peak resident set size of this process in KB, -1 where it can not be read
+     */
+    static long peakRssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux
+        }
+        return -1;
+    }
+
+    // Linux starts the peak over from the current resident set size
+    private static void resetPeakRss() {
+        try {
+            Files.write(Paths.get("/proc/self/clear_refs"), "5".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException | RuntimeException e) {
+            // The peak stays the one of the whole run
+        }
+    }
+
+    private static long[] gcCountAndMillis() {
+        long[] total = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total[0] += Math.max(0, gc.getCollectionCount());
+            total[1] += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // Counts the quotes Main prints
+    private static class CountingStream extends OutputStream {
+
+        private static final byte[] QUOTE = "Requested amount".getBytes(StandardCharsets.US_ASCII);
+        private int matched;
+        private long served;
+
+        @Override
+        public void write(int b) {
+            matched = b == QUOTE[matched] ? matched + 1 : b == QUOTE[0] ? 1 : 0;
+            if (matched == QUOTE.length) {
+                served++;
+                matched = 0;
+            }
+        }
+    }
+
+    /**
+     * Measures of one scenario against one market.
+     */
+    static class Result {
+
+        private final MarketGenerator.Shape shape;
+        private final String scenario;
+        private final long lenders;
+        private final long fileBytes;
+        private final long start;
+        private final long[] gcStart;
+        private long quotes;
+        private long served;
+        private long wallNanos;
+        private long loadNanos;
+        private long gcs;
+        private long gcMillis;
+        private long peakRssKb;
+
+        Result(MarketGenerator.Shape shape, String scenario, long lenders, long fileBytes) {
+            this.shape = shape;
+            this.scenario = scenario;
+            this.lenders = lenders;
+            this.fileBytes = fileBytes;
+            resetPeakRss();
+            this.gcStart = gcCountAndMillis();
+            this.start = System.nanoTime();
+        }
+
+        private void loaded() {
+            loadNanos = System.nanoTime() - start;
+        }
+
+        private void stop(long quotes, long served) {
+            wallNanos = System.nanoTime() - start;
+            long[] gcEnd = gcCountAndMillis();
+            this.quotes = quotes;
+            this.served = served;
+            this.gcs = gcEnd[0] - gcStart[0];
+            this.gcMillis = gcEnd[1] - gcStart[1];
+            this.peakRssKb = peakRssKb();
+        }
+
+        MarketGenerator.Shape getShape() {
+            return shape;
+        }
+
+        String getScenario() {
+            return scenario;
+        }
+
+        long getLenders() {
+            return lenders;
+        }
+
+        long getQuotes() {
+            return quotes;
+        }
+
+        long getServed() {
+            return served;
+        }
+
+        double getQuotesPerSecond() {
+            long quoteNanos = wallNanos - loadNanos;
+            return quoteNanos == 0 ? 0 : quotes * 1e9 / quoteNanos;
+        }
+
+        long getPeakRssKb() {
+            return peakRssKb;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s,%s,%d,%.1f,%d,%d,%d,%d,%.1f,%d,%d,%d", shape, scenario, lenders,
+                    fileBytes / 1048576.0, quotes, served, wallNanos / 1000000, loadNanos / 1000000,
+                    getQuotesPerSecond(), gcs, gcMillis, peakRssKb < 0 ? -1 : peakRssKb / 1024);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes valid market CSV files of any size, the same bytes for the same seed, shape and size.
+ * <p>
+ * {@code java MarketGenerator market.csv UNIFORM 300MB 42} writes lenders until the file reaches 300MB,
+ * {@code java MarketGenerator market.csv NORMAL 1000000} writes a million lenders.
+ */
+class MarketGenerator {
+
+    /**
+     * Rates and money of the lenders.
+     */
+    enum Shape {
+        // Rates from 0% to 14.9% with 3 decimals, £1 to £2000 each, one in ten with pence
+        UNIFORM,
+        // Rates around 7% with a standard deviation of 2%, from 0% to 30%
+        NORMAL,
+        // Every lender at 7%
+        EQUAL_RATES,
+        // Every lender at 0%, lending for free
+        ZERO_RATES,
+        // Uniform rates, but all the lenders together have £14999.99, a penny short of the biggest loan
+        JUST_SHORT
+    }
+
+    // Money of a JUST_SHORT market in pence
+    static final long JUST_SHORT_PENCE = Loan.MAX_AMOUNT * 100L - 1;
+    static final String HEADER = "Lender,Rate,Available";
+    // Bytes of a line of lenders, on average, to size a JUST_SHORT market
+    private static final int LINE_BYTES = 24;
+
+    private final long seed;
+
+    MarketGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4) {
+            throw new IllegalArgumentException("Arguments should be: file, shape, lenders or size such as 300MB"
+                    + " or 2GB, and optionally the seed");
+        }
+        Shape shape = Shape.valueOf(args[1]);
+        long seed = args.length == 4 ? Long.parseLong(args[3]) : 42;
+        MarketGenerator generator = new MarketGenerator(seed);
+        Path file = Paths.get(args[0]);
+        long bytes = parseBytes(args[2]);
+        long lenders = bytes < 0 ? generator.write(file, shape, Long.parseLong(args[2]), Long.MAX_VALUE) :
+                generator.write(file, shape, Long.MAX_VALUE, bytes);
+        System.out.println(lenders + " lenders written to " + file + ", " + Files.size(file) + " bytes");
+    }
+
+    /**
+     * @return bytes of a size such as 300MB, -1 without a unit
+     */
+    static long parseBytes(String size) {
+        String upper = size.trim().toUpperCase();
+        long unit = upper.endsWith("GB") ? 1L << 30 : upper.endsWith("MB") ? 1L << 20 :
+                upper.endsWith("KB") ? 1L << 10 : 0;
+        if (unit == 0) {
+            return -1;
+        }
+        return Long.parseLong(upper.substring(0, upper.length() - 2).trim()) * unit;
+    }
+
+    /**
+     * Writes lenders until either limit is reached.
+     *
+     * @param maxLenders lenders of the market
+     * @param maxBytes   size of the file, which stops at the end of the line reaching it
+     * @return lenders written
+     * @throws IOException if writing the file
+     */
+    long write(Path file, Shape shape, long maxLenders, long maxBytes) throws IOException {
+        if (maxLenders == Long.MAX_VALUE && maxBytes == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("The number of lenders or the size must be limited");
+        }
+        Random random = new Random(seed);
+        // Pence spread over the lenders of a JUST_SHORT market
+        long lendersToShare = Math.min(maxLenders, Math.max(1, maxBytes / LINE_BYTES));
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(HEADER);
+            out.write('\n');
+            long bytes = HEADER.length() + 1;
+            StringBuilder line = new StringBuilder(64);
+            long lenders = 0;
+            long sharedPence = 0;
+            while (lenders < maxLenders && bytes < maxBytes) {
+                line.setLength(0);
+                line.append("Lender").append(lenders).append(',');
+                appendRate(shape, random, line);
+                line.append(',');
+                if (shape == Shape.JUST_SHORT) {
+                    long share = lenders >= lendersToShare ? 0 :
+                            share(lenders + 1, lendersToShare) - share(lenders, lendersToShare);
+                    // The last lender gets what is left, lenders after the money ran out get nothing
+                    if (lenders + 1 == maxLenders || bytes + line.length() + 12 >= maxBytes) {
+                        share = JUST_SHORT_PENCE - sharedPence;
+                    }
+                    sharedPence += share;
+                    appendPence(share, line);
+                } else if (random.nextInt(10) == 0) {
+                    appendPence(100 + random.nextInt(200000), line);
+                } else {
+                    line.append(1 + random.nextInt(2000));
+                }
+                line.append('\n');
+                out.append(line);
+                // Lines are ASCII
+                bytes += line.length();
+                lenders++;
+            }
+            return lenders;
+        }
+    }
+
+    // Pence of the first lenders of a JUST_SHORT market
+    private static long share(long lenders, long of) {
+        return (long) ((double) JUST_SHORT_PENCE * lenders / of);
+    }
+
+    private static void appendRate(Shape shape, Random random, StringBuilder line) {
+        int thousandths;
+        switch (shape) {
+            case NORMAL:
+                thousandths = (int) Math.round(70 + 20 * random.nextGaussian());
+                thousandths = Math.max(0, Math.min(300, thousandths));
+                break;
+            case EQUAL_RATES:
+                thousandths = 70;
+                break;
+            case ZERO_RATES:
+                thousandths = 0;
+                break;
+            default:
+                thousandths = random.nextInt(150);
+        }
+        line.append("0.").append((char) ('0' + thousandths / 100)).append((char) ('0' + thousandths / 10 % 10))
+                .append((char) ('0' + thousandths % 10));
+    }
+
+    private static void appendPence(long pence, StringBuilder line) {
+        long cents = pence % 100;
+        line.append(pence / 100).append('.').append(cents < 10 ? "0" : "").append(cents);
+    }
+}
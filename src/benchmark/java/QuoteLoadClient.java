@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load test of a {@link QuoteServer}: a number of threads send quote requests as fast as they can, cycling
+ * through every valid amount, and report throughput and latency percentiles.
+ * <p>
+ * {@code java QuoteLoadClient http://localhost:8080 16 100000}
+ */
+class QuoteLoadClient {
+
+    private final URL baseUrl;
+    private final int threads;
+
+    QuoteLoadClient(URL baseUrl, int threads) {
+        this.baseUrl = baseUrl;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Arguments should be: server URL, threads, requests");
+        }
+        Report report = new QuoteLoadClient(new URL(args[0]), Integer.parseInt(args[1]))
+                .run(Integer.parseInt(args[2]));
+        System.out.println(report);
+    }
+
+    /**
+     * Sends the requests, split between the threads.
+     *
+     * @return latencies of the requests answered, with or without a quote
+     */
+    Report run(int requests) throws InterruptedException, IOException {
+        int steps = (Loan.MAX_AMOUNT - Loan.MIN_AMOUNT) / Loan.AMOUNT_STEP + 1;
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            clients.add(pool.submit(() -> {
+                byte[] buffer = new byte[1024];
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    int amount = Loan.MIN_AMOUNT + i % steps * Loan.AMOUNT_STEP;
+                    long sent = System.nanoTime();
+                    if (!request(new URL(baseUrl, QuoteServer.QUOTE_PATH + "?amount=" + amount), buffer)) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Load test failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Report(requests, errors.get(), elapsed, latencies);
+    }
+
+    /**
+     * @return if the server answered with a quote or with no quote for the amount
+     */
+    private static boolean request(URL url, byte[] buffer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        // Reading the whole body lets the connection be kept alive for the next request
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            while (body != null && body.read(buffer) >= 0) {
+                // Discarded
+            }
+        }
+        return status == 200 || status == 404;
+    }
+
+    static class Report {
+
+        private final int requests;
+        private final int errors;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Report(int requests, int errors, long elapsedNanos, long[] sortedLatencies) {
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        int getRequests() {
+            return requests;
+        }
+
+        int getErrors() {
+            return errors;
+        }
+
+        double getRequestsPerSecond() {
+            return requests * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         */
+        long getLatencyNanos(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Requests: %d, errors: %d, throughput: %.0f requests/s, p50: %.3f ms, p99: %.3f ms",
+                    requests, errors, getRequestsPerSecond(), getLatencyNanos(50) / 1e6, getLatencyNanos(99) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MacroBenchmarkTest {
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Test
+    public void everyScenario() throws IOException {
+        MacroBenchmark benchmark = new MacroBenchmark(testFolder.getRoot().toPath(), "500", 42);
+        List<MacroBenchmark.Result> uniform = benchmark.run(MarketGenerator.Shape.UNIFORM);
+
+        assertThat(uniform).extracting(MacroBenchmark.Result::getScenario).containsExactly("main", "loan");
+        assertThat(uniform).allSatisfy(result -> {
+            assertThat(result.getLenders()).isEqualTo(500);
+            assertThat(result.getQuotes()).isEqualTo(result.getServed());
+            assertThat(result.getQuotesPerSecond()).isPositive();
+            assertThat(result.toString()).startsWith("UNIFORM," + result.getScenario() + ",500,");
+        });
+        assertThat(uniform.get(1).getQuotes()).isEqualTo((long) MacroBenchmark.LOAN_ROUNDS * Loan.AMOUNT_STEPS);
+    }
+
+    @Test
+    public void justShortServesNoBiggestLoan() throws IOException {
+        MacroBenchmark benchmark = new MacroBenchmark(testFolder.getRoot().toPath(), "16KB", 1);
+        List<MacroBenchmark.Result> justShort = benchmark.run(MarketGenerator.Shape.JUST_SHORT);
+        // The market is generated once
+        List<MacroBenchmark.Result> again = benchmark.run(MarketGenerator.Shape.JUST_SHORT);
+
+        assertThat(justShort.get(0).getServed()).isEqualTo(1);
+        assertThat(justShort.get(1).getServed()).isEqualTo(justShort.get(1).getQuotes() - MacroBenchmark.LOAN_ROUNDS);
+        assertThat(again.get(0).getLenders()).isEqualTo(justShort.get(0).getLenders());
+        assertThat(testFolder.getRoot().list()).hasSize(1);
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MarketGeneratorTest {
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Test
+    public void sameBytesForTheSameSeed() throws IOException {
+        for (MarketGenerator.Shape shape : MarketGenerator.Shape.values()) {
+            Path first = write(42, shape, 1000, Long.MAX_VALUE);
+            Path second = write(42, shape, 1000, Long.MAX_VALUE);
+            Path other = write(43, shape, 1000, Long.MAX_VALUE);
+
+            assertThat(Files.readAllBytes(first)).isEqualTo(Files.readAllBytes(second));
+            if (shape != MarketGenerator.Shape.EQUAL_RATES && shape != MarketGenerator.Shape.ZERO_RATES) {
+                assertThat(Files.readAllBytes(first)).isNotEqualTo(Files.readAllBytes(other));
+            }
+        }
+    }
+
+    @Test
+    public void validMarketsOfEveryShape() throws IOException {
+        for (MarketGenerator.Shape shape : MarketGenerator.Shape.values()) {
+            Path file = write(7, shape, 2000, Long.MAX_VALUE);
+            List<Lender> lenders = new CSV().extractLenders(file.toString());
+
+            assertThat(lenders).hasSize(2000);
+            assertThat(lenders).allSatisfy(lender -> {
+                assertThat(lender.getRate()).isBetween(BigDecimal.ZERO, new BigDecimal("0.3"));
+                assertThat(lender.getAvailable()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+            });
+            if (shape == MarketGenerator.Shape.EQUAL_RATES) {
+                assertThat(lenders).extracting(Lender::getRate).containsOnly(new BigDecimal("0.070"));
+            } else if (shape == MarketGenerator.Shape.ZERO_RATES) {
+                assertThat(lenders).extracting(Lender::getRate).containsOnly(new BigDecimal("0.000"));
+            }
+        }
+    }
+
+    @Test
+    public void justShortOfTheBiggestLoan() throws IOException {
+        for (Path file : new Path[] {write(1, MarketGenerator.Shape.JUST_SHORT, 5000, Long.MAX_VALUE),
+                write(1, MarketGenerator.Shape.JUST_SHORT, Long.MAX_VALUE, 100 * 1024),
+                write(1, MarketGenerator.Shape.JUST_SHORT, 1, Long.MAX_VALUE)}) {
+            LenderStore store = LenderStore.load(file.toString(), new MappedCSV());
+            long pence = 0;
+            for (LenderStore.Cursor cursor = store.cursor(); cursor.next(); ) {
+                pence += cursor.getAvailablePence();
+            }
+            FixedPointBook book = store.toFixedPointBook();
+
+            assertThat(pence).isEqualTo(1499999);
+            assertThat(new Loan().calculate(book, 15000)).isEmpty();
+            assertThat(new Loan().calculate(book, 14900)).isPresent();
+        }
+    }
+
+    @Test
+    public void stopsAtTheSize() throws IOException {
+        Path file = write(3, MarketGenerator.Shape.NORMAL, Long.MAX_VALUE, 64 * 1024);
+
+        assertThat(Files.size(file)).isBetween(64 * 1024L, 64 * 1024L + 32);
+        assertThat(Files.readAllLines(file).get(0)).isEqualTo(MarketGenerator.HEADER);
+    }
+
+    @Test
+    public void sizes() {
+        assertThat(MarketGenerator.parseBytes("300MB")).isEqualTo(300L * 1024 * 1024);
+        assertThat(MarketGenerator.parseBytes("2gb")).isEqualTo(2L * 1024 * 1024 * 1024);
+        assertThat(MarketGenerator.parseBytes("16KB")).isEqualTo(16 * 1024);
+        assertThat(MarketGenerator.parseBytes("1000")).isEqualTo(-1);
+    }
+
+    @Test
+    public void limitRequired() {
+        assertThatThrownBy(() -> write(1, MarketGenerator.Shape.UNIFORM, Long.MAX_VALUE, Long.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Path write(long seed, MarketGenerator.Shape shape, long lenders, long bytes) throws IOException {
+        File file = testFolder.newFile();
+        new MarketGenerator(seed).write(file.toPath(), shape, lenders, bytes);
+        return file.toPath();
+    }
+}
@@ -0,0 +1,30 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuoteLoadClientTest {
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Test
+    public void everyRequestAnswered() throws IOException, InterruptedException {
+        File market = testFolder.newFile();
+        new MarketGenerator(42).write(market.toPath(), MarketGenerator.Shape.UNIFORM, 1000, Long.MAX_VALUE);
+        try (QuoteServer server = new QuoteServer(new Loan(), LenderStore.load(market.getPath(), new MappedCSV())
+                .toFixedPointBook(), new InetSocketAddress("localhost", 0), 2)) {
+            QuoteLoadClient.Report report = new QuoteLoadClient(new URL("http://localhost:" + server.getAddress()
+                    .getPort()), 4).run(500);
+
+            assertThat(report.getRequests()).isEqualTo(500);
+            assertThat(report.getErrors()).isZero();
+            assertThat(report.getLatencyNanos(99)).isGreaterThanOrEqualTo(report.getLatencyNanos(50)).isPositive();
+        }
+    }
+}
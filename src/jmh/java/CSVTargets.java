@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * Code measured by benchmarks.CSVBenchmark: every CSV reader on a generated market.
+ * <p>
+ * Parameters: lenders, the number of rows, and reader, one of csv, mapped or parallel.
+ */
+public class CSVTargets implements Function<Map<String, String>, Map<String, Callable<Object>>> {
+
+    @Override
+    public Map<String, Callable<Object>> apply(Map<String, String> params) {
+        String filePath;
+        try {
+            filePath = Markets.write(Integer.parseInt(params.get("lenders")), 42).getPath();
+        } catch (IOException e) {
+            throw new IllegalStateException("Can not write market", e);
+        }
+        String reader = params.get("reader");
+        CSV csv = reader.equals("csv") ? new CSV() : reader.equals("mapped") ? new MappedCSV() : new ParallelCSV();
+
+        Map<String, Callable<Object>> targets = new HashMap<>();
+        // Lenders are counted and dropped, the biggest markets measure parsing and not the heap needed to keep them
+        targets.put("readLenders", () -> {
+            long[] count = new long[1];
+            csv.readLenders(filePath, lender -> count[0]++);
+            return count[0];
+        });
+        targets.put("extractCheapestLenders",
+                () -> csv.extractCheapestLenders(filePath, BigDecimal.valueOf(Loan.MAX_AMOUNT)));
+        return targets;
+    }
+}
@@ -0,0 +1,21 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generated market files for the benchmarks.
+ */
+class Markets {
+
+    private Markets() {
+    }
+
+    /**
+     * Writes a temporary CSV file of {@link MarketGenerator.Shape#UNIFORM} lenders, deleted on exit.
+     */
+    static File write(int lenders, long seed) throws IOException {
+        File file = File.createTempFile("market-" + lenders + "-", ".csv");
+        file.deleteOnExit();
+        new MarketGenerator(seed).write(file.toPath(), MarketGenerator.Shape.UNIFORM, lenders, Long.MAX_VALUE);
+        return file;
+    }
+}
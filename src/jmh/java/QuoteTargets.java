@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * Code measured by benchmarks.QuoteBenchmark and benchmarks.PrecisionBenchmark: rate blending, annuity math and full
+ * quotes against a generated market.
+ * <p>
+ * Parameters: lenders, the number of rows, amount, the requested amount, and optionally mathContext, DECIMAL32,
+ * DECIMAL64 or DECIMAL128 by default, the precision of the rate, the annuity math and the quotes.
+ */
+public class QuoteTargets implements Function<Map<String, String>, Map<String, Callable<Object>>> {
+
+    @Override
+    public Map<String, Callable<Object>> apply(Map<String, String> params) {
+        String filePath;
+        MarketBook book;
+        try {
+            filePath = Markets.write(Integer.parseInt(params.get("lenders")), 42).getPath();
+            book = MarketBook.load(filePath, new MappedCSV());
+        } catch (IOException e) {
+            throw new IllegalStateException("Can not write market", e);
+        }
+        FixedPointBook fixedPointBook = new FixedPointBook(book);
+        String mathContext = params.getOrDefault("mathContext", "DECIMAL128");
+        MathContext mc = mathContext.equals("DECIMAL32") ? MathContext.DECIMAL32 :
+                mathContext.equals("DECIMAL64") ? MathContext.DECIMAL64 : MathContext.DECIMAL128;
+        int amount = Integer.parseInt(params.get("amount"));
+        BigDecimal requestedAmount = new BigDecimal("" + (double) amount);
+        Loan loan = new Loan().withMathContext(mc);
+        BigDecimal rate = loan.calculateRate(requestedAmount, book);
+
+        Map<String, Callable<Object>> targets = new HashMap<>();
+        targets.put("calculateRate", () -> loan.calculateRate(requestedAmount, book));
+        // What calculateEffectiveInterestInMonths and the (1+r)^-N power cost on every quote without the cache
+        targets.put("annuity", () -> AnnuityCache.Annuity.of(rate, 36, mc));
+        targets.put("quoteBook", () -> loan.calculate(book, amount));
+        targets.put("quoteFixedPointBook", () -> loan.calculate(fixedPointBook, amount));
+        // Reads the file on every quote, as Main does
+        targets.put("quoteFile", () -> loan.calculate(filePath, amount, new MappedCSV()));
+        return targets;
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of generated markets by every CSV reader, see CSVTargets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CSVBenchmark {
+
+    @Param({"1000", "1000000", "10000000"})
+    public int lenders;
+
+    @Param({"csv", "mapped", "parallel"})
+    public String reader;
+
+    private Callable<Object> readLenders;
+    private Callable<Object> extractCheapestLenders;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("lenders", Integer.toString(lenders));
+        params.put("reader", reader);
+        Map<String, Callable<Object>> targets = Targets.load("CSVTargets", params);
+        readLenders = targets.get("readLenders");
+        extractCheapestLenders = targets.get("extractCheapestLenders");
+    }
+
+    @Benchmark
+    public Object readLenders() throws Exception {
+        return readLenders.call();
+    }
+
+    @Benchmark
+    public Object extractCheapestLenders() throws Exception {
+        return extractCheapestLenders.call();
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate blending, annuity math and quotes of a loaded market at every precision, see QuoteTargets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrecisionBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int lenders;
+
+    @Param({"DECIMAL32", "DECIMAL64", "DECIMAL128"})
+    public String mathContext;
+
+    @Param({"1000", "15000"})
+    public int amount;
+
+    private Callable<Object> calculateRate;
+    private Callable<Object> annuity;
+    private Callable<Object> quoteBook;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("lenders", Integer.toString(lenders));
+        params.put("mathContext", mathContext);
+        params.put("amount", Integer.toString(amount));
+        Map<String, Callable<Object>> targets = Targets.load("QuoteTargets", params);
+        calculateRate = targets.get("calculateRate");
+        annuity = targets.get("annuity");
+        quoteBook = targets.get("quoteBook");
+    }
+
+    @Benchmark
+    public Object calculateRate() throws Exception {
+        return calculateRate.call();
+    }
+
+    @Benchmark
+    public Object annuity() throws Exception {
+        return annuity.call();
+    }
+
+    @Benchmark
+    public Object quoteBook() throws Exception {
+        return quoteBook.call();
+    }
+}
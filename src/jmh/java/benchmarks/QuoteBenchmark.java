@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end quotes at the precision Main displays, see QuoteTargets, the ones depending on the precision are in
+ * PrecisionBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuoteBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int lenders;
+
+    @Param({"1000", "15000"})
+    public int amount;
+
+    private Callable<Object> quoteFixedPointBook;
+    private Callable<Object> quoteFile;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("lenders", Integer.toString(lenders));
+        params.put("amount", Integer.toString(amount));
+        Map<String, Callable<Object>> targets = Targets.load("QuoteTargets", params);
+        quoteFixedPointBook = targets.get("quoteFixedPointBook");
+        quoteFile = targets.get("quoteFile");
+    }
+
+    @Benchmark
+    public Object quoteFixedPointBook() throws Exception {
+        return quoteFixedPointBook.call();
+    }
+
+    @Benchmark
+    public Object quoteFile() throws Exception {
+        return quoteFile.call();
+    }
+}
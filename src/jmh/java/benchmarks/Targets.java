@@ -0,0 +1,23 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * JMH does not accept benchmarks in the default package, where the calculator is, and a named package can not import
+ * it. The benchmarks call the calculator through JDK interfaces implemented by *Targets classes of the default
+ * package, loaded by name.
+ */
+final class Targets {
+
+    private Targets() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Callable<Object>> load(String className, Map<String, String> params) throws Exception {
+        Function<Map<String, String>, Map<String, Callable<Object>>> factory =
+                (Function<Map<String, String>, Map<String, Callable<Object>>>) Class.forName(className).newInstance();
+        return factory.apply(params);
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Month by month repayment of a quote, computed lazily: iterating gives one mutable {@link Row} reused for every
+ * month, so memory does not depend on the number of months or on how many schedules are written.
+ * <p>
+ * The payment of every month is the monthly repayment of the quote, so the payments add up to its total repayment.
+ * The last month pays whatever balance is left, so the schedule ends at exactly zero.
+ */
+class AmortizationSchedule implements Iterable<AmortizationSchedule.Row> {
+
+    static final String CSV_HEADER = "Month,Payment,Interest,Principal,Balance";
+
+    private final BorrowerInfo borrowerInfo;
+    private final int months;
+    private final BigDecimal monthlyRate;
+    private final MathContext mathContext;
+
+    /**
+     * @param monthlyRate r of the monthly repayment formula, zero for a loan without interest
+     * @param mathContext precision of the interest, the one of the loan that quoted
+     */
+    AmortizationSchedule(BorrowerInfo borrowerInfo, int months, BigDecimal monthlyRate, MathContext mathContext) {
+        this.borrowerInfo = borrowerInfo;
+        this.months = months;
+        this.monthlyRate = monthlyRate;
+        this.mathContext = mathContext;
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+
+            private final Row row = new Row();
+            private BigDecimal balance = borrowerInfo.getRequestedAmount();
+
+            @Override
+            public boolean hasNext() {
+                return row.month < months;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                row.month++;
+                row.payment = borrowerInfo.getMonthlyRepayment();
+                if (row.month == months) {
+                    row.principal = balance;
+                    row.interest = row.payment.subtract(balance);
+                } else {
+                    row.interest = balance.multiply(monthlyRate, mathContext);
+                    row.principal = row.payment.subtract(row.interest);
+                }
+                balance = balance.subtract(row.principal);
+                row.balance = balance;
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Writes {@link #CSV_HEADER} and one line per month, with every decimal of the amounts.
+     */
+    void writeCsv(Appendable out) throws IOException {
+        out.append(CSV_HEADER).append('\n');
+        for (Row row : this) {
+            out.append(Integer.toString(row.month)).append(',')
+                    .append(row.payment.toPlainString()).append(',')
+                    .append(row.interest.toPlainString()).append(',')
+                    .append(row.principal.toPlainString()).append(',')
+                    .append(row.balance.toPlainString()).append('\n');
+        }
+    }
+
+    /**
+     * Writes the number of months, then per month an int and four doubles: payment, interest, principal and balance.
+     */
+    void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(months);
+        for (Row row : this) {
+            out.writeInt(row.month);
+            out.writeDouble(row.payment.doubleValue());
+            out.writeDouble(row.interest.doubleValue());
+            out.writeDouble(row.principal.doubleValue());
+            out.writeDouble(row.balance.doubleValue());
+        }
+    }
+
+    /**
+     * One month of the schedule, only valid until the next month is read.
+     */
+    static class Row {
+
+        private int month;
+        private BigDecimal payment;
+        private BigDecimal interest;
+        private BigDecimal principal;
+        private BigDecimal balance;
+
+        // From 1 to the months of the loan
+        int getMonth() {
+            return month;
+        }
+
+        BigDecimal getPayment() {
+            return payment;
+        }
+
+        BigDecimal getInterest() {
+            return interest;
+        }
+
+        BigDecimal getPrincipal() {
+            return principal;
+        }
+
+        // Left to repay after this month
+        BigDecimal getBalance() {
+            return balance;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import ch.obermuhlner.math.big.BigDecimalMath;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded least recently used cache of the annuity terms of a yearly rate, shared by concurrent quotes.
+ * <p>
+ * The terms are computed outside the lock, two threads missing the same key at once may both compute it.
+ */
+class AnnuityCache {
+
+    static final int DEFAULT_SIZE = 1024;
+
+    private final Map<Key, Annuity> annuities;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    AnnuityCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.annuities = new LinkedHashMap<Key, Annuity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Annuity> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param yearlyRate not zero
+     * @param months     of the loan
+     * @param mc         precision of the terms
+     * @return annuity terms of the rate
+     */
+    Annuity get(BigDecimal yearlyRate, int months, MathContext mc) {
+        Key key = new Key(yearlyRate.stripTrailingZeros(), months, mc);
+        Annuity annuity;
+        synchronized (annuities) {
+            annuity = annuities.get(key);
+        }
+        if (annuity != null) {
+            hits.increment();
+            return annuity;
+        }
+        misses.increment();
+        annuity = Annuity.of(yearlyRate, months, mc);
+        synchronized (annuities) {
+            annuities.put(key, annuity);
+        }
+        return annuity;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    int size() {
+        synchronized (annuities) {
+            return annuities.size();
+        }
+    }
+
+    /**
+     * Terms of the monthly payment formula r*P/(1 - (1+r)^(-N)) that only depend on the rate and the months.
+     */
+    static class Annuity {
+
+        // r, monthly rate equivalent to the yearly one
+        private final BigDecimal monthlyRate;
+        // 1 - (1+r)^(-N)
+        private final BigDecimal discount;
+
+        private Annuity(BigDecimal monthlyRate, BigDecimal discount) {
+            this.monthlyRate = monthlyRate;
+            this.discount = discount;
+        }
+
+        static Annuity of(BigDecimal yearlyRate, int months, MathContext mc) {
+            BigDecimal r = monthlyRate(yearlyRate, mc);
+            BigDecimal tmp = r.add(BigDecimal.ONE).pow(-months, mc);
+            return new Annuity(r, BigDecimal.ONE.subtract(tmp));
+        }
+
+        private static BigDecimal monthlyRate(BigDecimal yearlyRate, MathContext mc) {
+            // Formula: ((1+nominalInterest)^(1/12))-1
+            BigDecimal exp = BigDecimal.ONE.divide(new BigDecimal("12"), mc);
+            return BigDecimalMath.pow(BigDecimal.ONE.add(yearlyRate), exp, mc).subtract(BigDecimal.ONE);
+        }
+
+        BigDecimal getMonthlyRate() {
+            return monthlyRate;
+        }
+
+        BigDecimal getDiscount() {
+            return discount;
+        }
+
+        /**
+         * @return r*P/(1 - (1+r)^(-N))
+         */
+        BigDecimal monthlyRepayment(BigDecimal principal, MathContext mc) {
+            return monthlyRate.multiply(principal).divide(discount, mc);
+        }
+    }
+
+    private static class Key {
+
+        private final BigDecimal yearlyRate;
+        private final int months;
+        private final MathContext mc;
+
+        Key(BigDecimal yearlyRate, int months, MathContext mc) {
+            this.yearlyRate = yearlyRate;
+            this.months = months;
+            this.mc = mc;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return months == key.months && yearlyRate.equals(key.yearlyRate) && mc.equals(key.mc);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(yearlyRate, months, mc);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.math.BigDecimal;
+
+/**
+ * Rate of every valid amount of a market, and its annuity factor r/(1 - (1+r)^(-N)) for a few terms, built by
+ * {@link Loan#tabulate(FixedPointBook, int...)}.
+ * <p>
+ * A quote blends the rates of its lenders, so the rates a market can quote are the ones of its £100 ladder: one per
+ * amount, at most {@link Loan#AMOUNT_STEPS}. With the factors of those rates precomputed per term, the monthly
+ * repayment of a quote is the amount times the factor.
+ */
+class AnnuityTable {
+
+    private final int[] termsMonths;
+    // Per amount step, null when the market can not cover the amount
+    private final BigDecimal[] rates;
+    // Per amount step, lenders whose money the quote needs
+    private final int[] lenders;
+    // Per term and amount step, null for a rate of zero
+    private final BigDecimal[][] factors;
+
+    AnnuityTable(int[] termsMonths, BigDecimal[] rates, int[] lenders, BigDecimal[][] factors) {
+        this.termsMonths = termsMonths.clone();
+        this.rates = rates;
+        this.lenders = lenders;
+        this.factors = factors;
+    }
+
+    /**
+     * @param step of the amount, 0 for £1000
+     * @return rate of the amount, null when the market can not cover it
+     */
+    BigDecimal getRate(int step) {
+        return rates[step];
+    }
+
+    int getLenders(int step) {
+        return lenders[step];
+    }
+
+    /**
+     * @return annuity factor, null when the rate is zero and the repayment is the amount divided by the months
+     * @throws IllegalArgumentException if the term is not in the table
+     */
+    BigDecimal getFactor(int termMonths, int step) {
+        for (int t = 0; t < termsMonths.length; t++) {
+            if (termsMonths[t] == termMonths) {
+                return factors[t][step];
+            }
+        }
+        throw new IllegalArgumentException("Term " + termMonths + " months is not in the annuity table");
+    }
+}
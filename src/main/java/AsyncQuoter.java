@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quotes of a market file that never block the calling thread.
+ * <p>
+ * The file is read with an {@link AsynchronousFileChannel} whose reads complete on the I/O executor, a chunk at a
+ * time, and the chunks are parsed and quoted on the compute executor. Quotes of a file that is being loaded wait for
+ * that load instead of starting another one. A quote completes exceptionally with:
+ * <ul>
+ * <li>{@link IllegalArgumentException} when the amount is not valid or the file is not a valid market, the amount
+ * being checked before the file is read</li>
+ * <li>{@link IOException} when the file can not be read</li>
+ * <li>{@link InsufficientMarketException} when the market can not cover the amount</li>
+ * </ul>
+ */
+class AsyncQuoter {
+
+    static final int DEFAULT_READ_SIZE = 1024 * 1024;
+
+    private final Loan loan;
+    private final ExecutorService io;
+    private final Executor compute;
+    private final int readSize;
+    // Loads in progress by absolute path
+    private final ConcurrentMap<Path, CompletableFuture<FixedPointBook>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * @param io      completes the reads of the files, runs no computation
+     * @param compute parses the files and computes the quotes
+     */
+    AsyncQuoter(Loan loan, ExecutorService io, Executor compute) {
+        this(loan, io, compute, DEFAULT_READ_SIZE);
+    }
+
+    /**
+     * @param readSize bytes read at a time, more than the longest line
+     */
+    AsyncQuoter(Loan loan, ExecutorService io, Executor compute, int readSize) {
+        if (readSize <= MappedCSV.MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("Read size must be more than a line: " + readSize);
+        }
+        this.loan = loan;
+        this.io = io;
+        this.compute = compute;
+        this.readSize = readSize;
+    }
+
+    /**
+     * @param filePath to CSV file, read for this quote unless it is already being read
+     * @return quote of the loan against the lenders of the file
+     */
+    CompletableFuture<BorrowerInfo> quote(String filePath, double requestedAmount) {
+        try {
+            Loan.validate(requestedAmount);
+            if (filePath == null || filePath.isEmpty()) {
+                throw new IllegalArgumentException("filePath must not be empty or null");
+            }
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<BorrowerInfo> invalid = new CompletableFuture<>();
+            invalid.completeExceptionally(e);
+            return invalid;
+        }
+        return load(filePath).thenApplyAsync(book -> {
+            Optional<BorrowerInfo> borrowerInfo = loan.calculate(book, requestedAmount);
+            if (!borrowerInfo.isPresent()) {
+                throw new InsufficientMarketException(requestedAmount);
+            }
+            return borrowerInfo.get();
+        }, compute);
+    }
+
+    /**
+     * @return market of the file, shared by every caller while it is being loaded
+     */
+    CompletableFuture<FixedPointBook> load(String filePath) {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        CompletableFuture<FixedPointBook> started = new CompletableFuture<>();
+        CompletableFuture<FixedPointBook> load = loading.putIfAbsent(path, started);
+        if (load != null) {
+            return load;
+        }
+        loads.incrementAndGet();
+        try {
+            // Even opening the file touches the disk
+            io.execute(() -> {
+                try {
+                    new Reader(filePath, path, AsynchronousFileChannel.open(path,
+                            Collections.singleton(StandardOpenOption.READ), io), started).read();
+                } catch (IOException | RuntimeException e) {
+                    finish(path, started, null, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finish(path, started, null, e);
+        }
+        return started;
+    }
+
+    // Later quotes load the file again, even the ones that run as soon as this load completes
+    private void finish(Path path, CompletableFuture<FixedPointBook> load, FixedPointBook book, Throwable failure) {
+        loading.remove(path, load);
+        if (failure == null) {
+            load.complete(book);
+        } else {
+            load.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * @return files read so far, loads shared by several quotes counted once
+     */
+    long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * Reads a file chunk after chunk, each chunk parsed before the next one is read.
+     */
+    private class Reader implements CompletionHandler<Integer, Void> {
+
+        private final String filePath;
+        private final Path path;
+        private final AsynchronousFileChannel channel;
+        private final CompletableFuture<FixedPointBook> book;
+        private final ByteBuffer buffer = ByteBuffer.allocate(readSize);
+        private final LenderStore.Builder lenders = new LenderStore.Builder();
+        private long position;
+        private boolean headerRead;
+
+        Reader(String filePath, Path path, AsynchronousFileChannel channel, CompletableFuture<FixedPointBook> book) {
+            this.filePath = filePath;
+            this.path = path;
+            this.channel = channel;
+            this.book = book;
+        }
+
+        void read() {
+            channel.read(buffer, position, null, this);
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            boolean endOfInput = read < 0;
+            if (!endOfInput) {
+                position += read;
+                if (buffer.hasRemaining()) {
+                    read();
+                    return;
+                }
+            }
+            try {
+                compute.execute(() -> {
+                    try {
+                        parse(endOfInput);
+                        if (endOfInput) {
+                            FixedPointBook market = lenders.build().toFixedPointBook();
+                            close();
+                            finish(path, book, market, null);
+                            return;
+                        }
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                    read();
+                });
+            } catch (RejectedExecutionException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void failed(Throwable failure, Void attachment) {
+            fail(failure);
+        }
+
+        private void parse(boolean endOfInput) {
+            buffer.flip();
+            if (!headerRead) {
+                if (!buffer.hasRemaining()) {
+                    throw new IllegalArgumentException("File is empty: " + filePath);
+                }
+                buffer.position(MappedCSV.headerLength(buffer, filePath));
+                headerRead = true;
+            }
+            int consumed = MappedCSV.readLenders(buffer, endOfInput, filePath, lenders);
+            buffer.position(buffer.position() + consumed);
+            buffer.compact();
+        }
+
+        private void fail(Throwable failure) {
+            close();
+            finish(path, book, null, failure);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Every byte was read already
+            }
+        }
+    }
+
+    /**
+     * The lenders of the market do not have enough money for the amount.
+     */
+    static class InsufficientMarketException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        InsufficientMarketException(double requestedAmount) {
+            super("It is not possible to provide a quote of " + requestedAmount + " at that time.");
+        }
+    }
+}
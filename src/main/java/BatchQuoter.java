@@ -0,0 +1,207 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Quotes a stream of requested amounts, one per line, against a market loaded once.
+ * <p>
+ * Reading, quoting and writing overlap: the calling thread reads chunks of lines, the workers quote and format the
+ * chunks in parallel, and a writer thread writes them in the order they were read. At most two chunks per worker are
+ * in flight, so memory does not depend on the size of the input.
+ * <p>
+ * A line is an amount, quoted with the term of the loan, or an amount and a term in months separated by a comma.
+ * Every quote is a line of {@link #HEADER}, amounts that can not be quoted go to the errors with their line number.
+ */
+class BatchQuoter {
+
+    static final String HEADER = "Requested amount,Term,Rate,Monthly repayment,Total repayment";
+    static final int DEFAULT_CHUNK_LINES = 4096;
+
+    private final Loan loan;
+    private final FixedPointBook book;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final int chunkLines;
+
+    /**
+     * @param workerCount threads of the workers, bounds the chunks in flight
+     */
+    BatchQuoter(Loan loan, FixedPointBook book, ExecutorService workers, int workerCount, int chunkLines) {
+        this.loan = loan;
+        this.book = book;
+        this.workers = workers;
+        this.workerCount = workerCount;
+        this.chunkLines = chunkLines;
+    }
+
+    /**
+     * @return counts of the lines read, quoted, rejected and invalid
+     * @throws IOException if reading the amounts or writing the quotes
+     */
+    Summary run(BufferedReader amounts, Writer quotes, Writer errors) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        quotes.write(HEADER);
+        quotes.write('\n');
+        BlockingQueue<CompletableFuture<Chunk>> inFlight = new ArrayBlockingQueue<>(2 * workerCount);
+        Summary summary = new Summary();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> write(inFlight, quotes, errors, summary, failure), "batch-writer");
+        writer.start();
+        long lineNumber = 0;
+        try {
+            List<String> lines = new ArrayList<>(chunkLines);
+            for (String line = amounts.readLine(); line != null && failure.get() == null; line = amounts.readLine()) {
+                lines.add(line);
+                if (lines.size() == chunkLines) {
+                    submit(inFlight, lines, lineNumber);
+                    lineNumber += lines.size();
+                    lines = new ArrayList<>(chunkLines);
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(inFlight, lines, lineNumber);
+                lineNumber += lines.size();
+            }
+        } finally {
+            // No more chunks, even if reading failed
+            inFlight.put(CompletableFuture.completedFuture(null));
+            writer.join();
+        }
+        Throwable failed = failure.get();
+        if (failed instanceof IOException) {
+            throw (IOException) failed;
+        }
+        if (failed != null) {
+            throw new IllegalStateException("Quoting the batch failed", failed);
+        }
+        quotes.flush();
+        errors.flush();
+        summary.lines = lineNumber;
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private void submit(BlockingQueue<CompletableFuture<Chunk>> inFlight, List<String> lines, long firstLine)
+            throws InterruptedException {
+        inFlight.put(CompletableFuture.supplyAsync(() -> quote(lines, firstLine), workers));
+    }
+
+    private Chunk quote(List<String> lines, long firstLine) {
+        Chunk chunk = new Chunk();
+        StringBuilder quotes = new StringBuilder(lines.size() * 48);
+        StringBuilder errors = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            String amount = lines.get(i).trim();
+            if (amount.isEmpty()) {
+                continue;
+            }
+            int comma = amount.indexOf(',');
+            Optional<RoundedQuote> quote;
+            try {
+                Loan termLoan = comma < 0 ? loan :
+                        loan.withTerm(Integer.parseInt(amount.substring(comma + 1).trim()));
+                // Only the rounded repayments are written
+                quote = termLoan.calculateRounded(book,
+                        Double.valueOf(comma < 0 ? amount : amount.substring(0, comma)));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException included
+                errors.append(firstLine + i + 1).append(',').append(amount).append(",Invalid amount\n");
+                chunk.invalid++;
+                continue;
+            }
+            if (quote.isPresent()) {
+                quote.get().appendCsv(quotes);
+                chunk.quoted++;
+            } else {
+                errors.append(firstLine + i + 1).append(',').append(amount)
+                        .append(",It is not possible to provide a quote at that time.\n");
+                chunk.rejected++;
+            }
+        }
+        chunk.quotes = quotes.toString();
+        chunk.errors = errors.toString();
+        return chunk;
+    }
+
+    private static void write(BlockingQueue<CompletableFuture<Chunk>> inFlight, Writer quotes, Writer errors,
+            Summary summary, AtomicReference<Throwable> failure) {
+        while (true) {
+            CompletableFuture<Chunk> next;
+            try {
+                next = inFlight.take();
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+                return;
+            }
+            try {
+                Chunk chunk = next.join();
+                if (chunk == null) {
+                    return;
+                }
+                // After a failure the chunks are only taken, so the reader is never blocked on a full queue
+                if (failure.get() == null) {
+                    quotes.write(chunk.quotes);
+                    errors.write(chunk.errors);
+                    summary.quoted += chunk.quoted;
+                    summary.rejected += chunk.rejected;
+                    summary.invalid += chunk.invalid;
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e instanceof CompletionException ? e.getCause() : e);
+            }
+        }
+    }
+
+    private static class Chunk {
+
+        private String quotes;
+        private String errors;
+        private long quoted;
+        private long rejected;
+        private long invalid;
+    }
+
+    static class Summary {
+
+        private long lines;
+        private long quoted;
+        private long rejected;
+        private long invalid;
+        private long elapsedNanos;
+
+        long getLines() {
+            return lines;
+        }
+
+        long getQuoted() {
+            return quoted;
+        }
+
+        long getRejected() {
+            return rejected;
+        }
+
+        long getInvalid() {
+            return invalid;
+        }
+
+        double getQuotesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (quoted + rejected + invalid) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Lines: %d, quoted: %d, rejected: %d, invalid: %d, %.1f s, %.0f amounts/s",
+                    lines, quoted, rejected, invalid, elapsedNanos / 1e9, getQuotesPerSecond());
+        }
+    }
+}
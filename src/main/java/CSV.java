@@ -5,6 +5,7 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Disclaimer: Line can not be longer than 512 chars
@@ -21,10 +22,37 @@ class CSV {
      * @throws IOException if reading the file
      */
     List<Lender> extractLenders(String filePath) throws IOException {
+        List<Lender> result = new LinkedList<>();
+        readLenders(filePath, result::add);
+        return result;
+    }
+
+    /**
+     * Streams the lenders of the file keeping only the cheapest ones a loan up to coverAmount can reach, so memory
+     * does not depend on the size of the file.
+     *
+     * @param filePath    to CSV file
+     * @param coverAmount biggest loan the lenders kept must be able to quote
+     * @return cheapest lenders in CSV file, with the running total of all of them
+     * @throws IOException if reading the file
+     */
+    CheapestLenders extractCheapestLenders(String filePath, BigDecimal coverAmount) throws IOException {
+        CheapestLenders result = new CheapestLenders(coverAmount);
+        readLenders(filePath, result);
+        return result;
+    }
+
+    /**
+     * Gives every lender of the file to the consumer, in file order.
+     *
+     * @param filePath to CSV file
+     * @param consumer of every lender
+     * @throws IOException if reading the file
+     */
+    void readLenders(String filePath, Consumer<Lender> consumer) throws IOException {
         if (filePath == null || filePath.isEmpty()) {
             throw new IllegalArgumentException("filePath must not be empty or null");
         }
-        List<Lender> result = new LinkedList<>();
         // BufferedReader is faster than Scanner
         try (BufferedReader in = new BufferedReader(new FileReader(filePath), 2 * MBYTE_PER_BYTE)) {
             // Loading in memory one line at a time
@@ -36,7 +64,7 @@ class CSV {
                 throw new IllegalArgumentException("First line of " + filePath + "is not: 'Lender,Rate,Available'");
             }
             line = in.readLine();
-            while (line != null && isMemoryAvailable()) {
+            while (line != null) {
                 if (line.length() >= 512) {
                     throw new IllegalArgumentException("Line can not be longer than 512 chars");
                 }
@@ -53,39 +81,10 @@ class CSV {
                 if (amount.doubleValue() < 0) {
                     throw new IllegalArgumentException("amount of " + fields + " must be positive number");
                 }
-                result.add(new Lender(fields.get(0), rate, amount));
+                consumer.accept(new Lender(fields.get(0), rate, amount));
 
                 line = in.readLine();
             }
         }
-        return result;
-    }
-
-    /**
-     * When cache mechanism is implemented, the system could be memory overflown, this method will avoid it.
-     *
-     * @return if there is memory available in the system
-     */
-    private static boolean isMemoryAvailable() {
-        long totalMemoryInUse = Runtime.getRuntime().totalMemory();
-        long freeMemory = Runtime.getRuntime().freeMemory();
-        long memoryUsed = totalMemoryInUse - freeMemory;
-        double memoryUsedPercentage = ((memoryUsed * 1.0) / totalMemoryInUse) * 100;
-
-        //Threshold for maximum utilization of the JVM Ram available, {@link #isMemoryAvailable()}.
-        double MEMORY_PERCENTAGE_ALLOWED = 90;
-        if (memoryUsedPercentage > MEMORY_PERCENTAGE_ALLOWED) {
-            System.out.println("Memory threshold exceeded:");
-            long maxMemory = Runtime.getRuntime().maxMemory();
-            System.out.println("Maximum memory JVM will attempt to use (MB): " + (maxMemory == Long.MAX_VALUE ?
-                    "no limit" :
-                    maxMemory / MBYTE_PER_BYTE));
-            System.out.println("Amount of free memory available to the JVM (MB): " + freeMemory / MBYTE_PER_BYTE);
-            System.out.println("Total memory currently in use by the JVM (MB): " + totalMemoryInUse / MBYTE_PER_BYTE);
-            System.out.println("Memory use " + Math.floor(memoryUsedPercentage * 100) / 100 + " %");
-            System.out.println("Memory threshold " + MEMORY_PERCENTAGE_ALLOWED + " %");
-            return false;
-        }
-        return true;
     }
 }
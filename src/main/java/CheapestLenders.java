@@ -0,0 +1,86 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Keeps, out of a stream of lenders, only the cheapest ones a loan up to a cover amount can reach.
+ * <p>
+ * A quote takes the cheapest lenders, in file order on equal rates, until their money covers the requested amount.
+ * A lender is then unreachable once the lenders before it already cover the biggest loan. The kept lenders are in a
+ * max-heap on rate and the most expensive one is evicted as soon as the others cover the amount without it.
+ */
+class CheapestLenders implements Consumer<Lender> {
+
+    // Most expensive first, the latest in the file first on equal rates
+    private static final Comparator<Entry> MOST_EXPENSIVE_FIRST =
+            Comparator.comparing((Entry entry) -> entry.lender.getRate()).thenComparingLong(entry -> entry.sequence)
+                    .reversed();
+
+    private final BigDecimal coverAmount;
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(MOST_EXPENSIVE_FIRST);
+    // Money of the lenders in the heap
+    private BigDecimal keptAvailable = BigDecimal.ZERO;
+    // Money of every lender seen
+    private BigDecimal totalAvailable = BigDecimal.ZERO;
+    private long sequence;
+
+    CheapestLenders(BigDecimal coverAmount) {
+        this.coverAmount = coverAmount;
+    }
+
+    @Override
+    public void accept(Lender lender) {
+        totalAvailable = totalAvailable.add(lender.getAvailable());
+        Entry entry = new Entry(lender, sequence++);
+        if (keptAvailable.compareTo(coverAmount) >= 0 && MOST_EXPENSIVE_FIRST.compare(entry, heap.peek()) <= 0) {
+            // Not cheaper than a lender already unreachable
+            return;
+        }
+        heap.add(entry);
+        keptAvailable = keptAvailable.add(lender.getAvailable());
+        while (keptAvailable.subtract(heap.peek().lender.getAvailable()).compareTo(coverAmount) >= 0) {
+            keptAvailable = keptAvailable.subtract(heap.poll().lender.getAvailable());
+        }
+    }
+
+    /**
+     * @return lenders kept, sorted by rate and in file order on equal rates
+     */
+    List<Lender> getLenders() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(MOST_EXPENSIVE_FIRST.reversed());
+        List<Lender> lenders = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            lenders.add(entry.lender);
+        }
+        return lenders;
+    }
+
+    /**
+     * @return money of the lenders kept
+     */
+    BigDecimal getKeptAvailable() {
+        return keptAvailable;
+    }
+
+    /**
+     * @return money of every lender seen, kept or not
+     */
+    BigDecimal getTotalAvailable() {
+        return totalAvailable;
+    }
+
+    private static class Entry {
+
+        private final Lender lender;
+        private final long sequence;
+
+        Entry(Lender lender, long sequence) {
+            this.lender = lender;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.math.BigDecimal;
+import java.nio.LongBuffer;
+
+/**
+ * Fixed point copy of a {@link MarketBook}: money in pence and rates in millionths, kept as running totals in
+ * primitive arrays, or in a memory mapped {@link MarketSnapshot}, so finding the lenders of a quote and weighting
+ * their rates does not allocate.
+ * <p>
+ * Every available amount must be a whole number of pence and every rate a whole number of millionths.
+ */
+class FixedPointBook {
+
+    // Decimal digits of a pence amount
+    static final int PENCE_SCALE = 2;
+    // Decimal digits of a rate in millionths
+    static final int RATE_SCALE = 6;
+    // Decimal digits of a weighted amount, pence times millionths
+    static final int WEIGHTED_SCALE = PENCE_SCALE + RATE_SCALE;
+
+    // cumulativePence[i] is the money available from lenders 0..i
+    private final LongBuffer cumulativePence;
+    // cumulativeWeighted[i] is the sum of available * rate of lenders 0..i, in WEIGHTED_SCALE
+    private final LongBuffer cumulativeWeighted;
+
+    FixedPointBook(MarketBook book) {
+        long[] cumulativePence = new long[book.size()];
+        long[] cumulativeWeighted = new long[book.size()];
+        long totalPence = 0;
+        long totalWeighted = 0;
+        int i = 0;
+        for (Lender lender : book.getLenders()) {
+            long pence = toLong(lender.getAvailable(), PENCE_SCALE, "available");
+            long rate = toLong(lender.getRate(), RATE_SCALE, "rate");
+            try {
+                totalPence = Math.addExact(totalPence, pence);
+                totalWeighted = Math.addExact(totalWeighted, Math.multiplyExact(pence, rate));
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Market is too big for fixed point quotes", e);
+            }
+            cumulativePence[i] = totalPence;
+            cumulativeWeighted[i] = totalWeighted;
+            i++;
+        }
+        this.cumulativePence = LongBuffer.wrap(cumulativePence);
+        this.cumulativeWeighted = LongBuffer.wrap(cumulativeWeighted);
+    }
+
+    /**
+     * @param cumulativePence    running totals of available money in pence, from index 0 to the limit
+     * @param cumulativeWeighted running sums of available * rate in {@link #WEIGHTED_SCALE}, same length
+     */
+    FixedPointBook(LongBuffer cumulativePence, LongBuffer cumulativeWeighted) {
+        if (cumulativePence.limit() != cumulativeWeighted.limit()) {
+            throw new IllegalArgumentException("Running totals must have the same length");
+        }
+        this.cumulativePence = cumulativePence;
+        this.cumulativeWeighted = cumulativeWeighted;
+    }
+
+    static long toLong(BigDecimal value, int scale, String field) {
+        try {
+            return value.movePointRight(scale).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(
+                    field + " " + value + " can not be represented with " + scale + " decimals", e);
+        }
+    }
+
+    int size() {
+        return cumulativePence.limit();
+    }
+
+    /**
+     * Binary search over the running totals.
+     *
+     * @return index of the first lender whose running total covers the amount, -1 if the book can not cover it
+     */
+    int indexCovering(long amountPence) {
+        int low = 0;
+        int high = cumulativePence.limit() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativePence.get(middle) >= amountPence) {
+                found = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return money available from the cheapest lenders up to and including the one at index, in pence
+     */
+    long getCumulativePence(int index) {
+        return cumulativePence.get(index);
+    }
+
+    /**
+     * @return sum of available * rate of the cheapest lenders up to and including the one at index, in
+     * {@link #WEIGHTED_SCALE}
+     */
+    long getCumulativeWeighted(int index) {
+        return cumulativeWeighted.get(index);
+    }
+
+    long getTotalPence() {
+        return size() == 0 ? 0 : cumulativePence.get(size() - 1);
+    }
+}
@@ -15,6 +15,10 @@ public class Lender {
         this.available = available;
     }
 
+    String getName() {
+        return name;
+    }
+
     BigDecimal getAvailable() {
         return available;
     }
@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * Lenders of a market in file order, kept out of the heap: one direct buffer per column, rate in millionths,
+ * available in pence and the id of the name in a {@link NameDictionary}.
+ * <p>
+ * A market of millions of lenders is then a few buffers instead of millions of {@link Lender}s, {@link String}s and
+ * {@link BigDecimal}s for the garbage collector to trace. {@link #cursor()} walks the lenders without creating objects,
+ * {@link #getLender(int)} creates a {@link Lender} for callers that need one.
+ * <p>
+ * Every available amount must be a whole number of pence and every rate a whole number of millionths.
+ */
+class LenderStore {
+
+    private final LongBuffer rates;
+    private final LongBuffer availablePence;
+    private final IntBuffer nameIds;
+    private final NameDictionary names;
+
+    private LenderStore(LongBuffer rates, LongBuffer availablePence, IntBuffer nameIds, NameDictionary names) {
+        this.rates = rates;
+        this.availablePence = availablePence;
+        this.nameIds = nameIds;
+        this.names = names;
+    }
+
+    /**
+     * @param filePath to CSV file
+     * @param csv      reader of the file
+     * @return every lender of the file
+     * @throws IOException if reading the file
+     */
+    static LenderStore load(String filePath, CSV csv) throws IOException {
+        Builder builder = new Builder();
+        csv.readLenders(filePath, builder);
+        return builder.build();
+    }
+
+    int size() {
+        return rates.limit();
+    }
+
+    /**
+     * @return rate in millionths
+     */
+    long getRate(int index) {
+        return rates.get(index);
+    }
+
+    long getAvailablePence(int index) {
+        return availablePence.get(index);
+    }
+
+    int getNameId(int index) {
+        return nameIds.get(index);
+    }
+
+    String getName(int index) {
+        return names.getName(nameIds.get(index));
+    }
+
+    NameDictionary getNames() {
+        return names;
+    }
+
+    /**
+     * @return new lender equal to the one read from the file, except for trailing zeros of the decimals
+     */
+    Lender getLender(int index) {
+        return new Lender(getName(index), BigDecimal.valueOf(getRate(index), FixedPointBook.RATE_SCALE),
+                BigDecimal.valueOf(getAvailablePence(index), FixedPointBook.PENCE_SCALE));
+    }
+
+    /**
+     * @return cursor before the first lender
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return indexes of the lenders sorted by rate, in file order on equal rates as in {@link MarketBook}
+     */
+    int[] sortedByRate() {
+        int size = size();
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            long rate = rates.get(i);
+            if (rate > Integer.MAX_VALUE) {
+                return sortedByRateBoxed();
+            }
+            // Index in the low bits keeps the sort stable
+            keys[i] = rate << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    // Rates above 2147%
+    private int[] sortedByRateBoxed() {
+        Integer[] sorted = new Integer[size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.comparingLong(rates::get));
+        return Arrays.stream(sorted).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Same as {@link FixedPointBook#FixedPointBook(MarketBook)} of the same lenders, without a {@link Lender} or a
+     * {@link MarketBook}.
+     *
+     * @throws IllegalArgumentException if the sums do not fit in fixed point
+     */
+    FixedPointBook toFixedPointBook() {
+        int[] sorted = sortedByRate();
+        long[] cumulativePence = new long[sorted.length];
+        long[] cumulativeWeighted = new long[sorted.length];
+        long totalPence = 0;
+        long totalWeighted = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            long pence = availablePence.get(sorted[i]);
+            try {
+                totalPence = Math.addExact(totalPence, pence);
+                totalWeighted = Math.addExact(totalWeighted, Math.multiplyExact(pence, rates.get(sorted[i])));
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Market is too big for fixed point quotes", e);
+            }
+            cumulativePence[i] = totalPence;
+            cumulativeWeighted[i] = totalWeighted;
+        }
+        return new FixedPointBook(LongBuffer.wrap(cumulativePence), LongBuffer.wrap(cumulativeWeighted));
+    }
+
+    /**
+     * Flyweight over the lenders of the store, one lender at a time, in file order.
+     */
+    class Cursor {
+
+        private int index = -1;
+
+        /**
+         * @return if the cursor moved to another lender
+         */
+        boolean next() {
+            if (index + 1 >= size()) {
+                index = size();
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        long getRate() {
+            return rates.get(index);
+        }
+
+        long getAvailablePence() {
+            return availablePence.get(index);
+        }
+
+        int getNameId() {
+            return nameIds.get(index);
+        }
+
+        String getName() {
+            return LenderStore.this.getName(index);
+        }
+
+        Lender toLender() {
+            return getLender(index);
+        }
+    }
+
+    /**
+     * Appends lenders to the columns, in the order they are given.
+     */
+    static class Builder implements Consumer<Lender> {
+
+        private final NameDictionary names = new NameDictionary();
+        private ByteBuffer rates = ByteBuffer.allocateDirect(8 * 1024);
+        private ByteBuffer availablePence = ByteBuffer.allocateDirect(8 * 1024);
+        private ByteBuffer nameIds = ByteBuffer.allocateDirect(4 * 1024);
+
+        @Override
+        public void accept(Lender lender) {
+            if (!rates.hasRemaining()) {
+                rates = grow(rates);
+                availablePence = grow(availablePence);
+                nameIds = grow(nameIds);
+            }
+            rates.putLong(FixedPointBook.toLong(lender.getRate(), FixedPointBook.RATE_SCALE, "rate"));
+            availablePence.putLong(FixedPointBook.toLong(lender.getAvailable(), FixedPointBook.PENCE_SCALE,
+                    "available"));
+            nameIds.putInt(names.intern(lender.getName()));
+        }
+
+        LenderStore build() {
+            return new LenderStore(column(rates).asLongBuffer(), column(availablePence).asLongBuffer(),
+                    column(nameIds).asIntBuffer(), names);
+        }
+
+        private static ByteBuffer grow(ByteBuffer column) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(2 * column.capacity());
+            column.flip();
+            grown.put(column);
+            return grown;
+        }
+
+        private static ByteBuffer column(ByteBuffer column) {
+            ByteBuffer written = column.duplicate();
+            written.flip();
+            return written.slice();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rate ordered market that changes one lender at a time: adding, removing, re-rating a lender or changing its
+ * available money costs O(log n), and so does finding the cheapest lenders of a quote.
+ * <p>
+ * Lenders are in a treap ordered by rate and then by the order they were added, each node keeping the total
+ * available money and the sum of available * rate of its subtree. A lender keeps its place among equal rates when it
+ * changes, as if its line had been edited in the CSV file, and a new lender goes after the existing ones, as if its
+ * line had been appended. Lenders are identified by name, lenders with the same name, as a CSV file may have, are
+ * changed and removed together.
+ * <p>
+ * Quotes may run concurrently with each other, changes are applied one at a time.
+ */
+class LiveMarket {
+
+    // Lenders of each name, in the order they were added
+    private final Map<String, List<Node>> nodes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Random priorities = new Random();
+    private Node root;
+    private long sequence;
+    private int size;
+
+    /**
+     * @param filePath to CSV file
+     * @param csv      reader of the file
+     * @return market with every lender in the CSV file
+     * @throws IOException if reading the file
+     */
+    static LiveMarket load(String filePath, CSV csv) throws IOException {
+        LiveMarket market = new LiveMarket();
+        csv.readLenders(filePath, market::add);
+        return market;
+    }
+
+    /**
+     * Adds the lender after the others, even if there is already a lender with the same name.
+     */
+    void add(Lender lender) {
+        lock.writeLock().lock();
+        try {
+            Node node = new Node(lender, sequence++, priorities.nextInt());
+            nodes.computeIfAbsent(lender.getName(), name -> new ArrayList<>(1)).add(node);
+            size++;
+            root = insert(root, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every lender with the name.
+     *
+     * @return if the lender was in the market
+     */
+    boolean remove(String name) {
+        lock.writeLock().lock();
+        try {
+            List<Node> named = nodes.remove(name);
+            if (named == null) {
+                return false;
+            }
+            for (Node node : named) {
+                root = delete(root, node);
+            }
+            size -= named.size();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the lender is not in the market
+     */
+    void changeRate(String name, BigDecimal rate) {
+        replace(name, rate, null);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the lender is not in the market
+     */
+    void changeAvailable(String name, BigDecimal available) {
+        replace(name, null, available);
+    }
+
+    private void replace(String name, BigDecimal rate, BigDecimal available) {
+        lock.writeLock().lock();
+        try {
+            List<Node> named = nodes.get(name);
+            if (named == null) {
+                throw new IllegalArgumentException("Lender not in market: " + name);
+            }
+            for (int i = 0; i < named.size(); i++) {
+                Node node = named.get(i);
+                root = delete(root, node);
+                Lender lender = new Lender(name, rate == null ? node.lender.getRate() : rate,
+                        available == null ? node.lender.getAvailable() : available);
+                Node changed = new Node(lender, node.sequence, node.priority);
+                named.set(i, changed);
+                root = insert(root, changed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the cheapest lenders whose money covers the amount, the last of them weighted with all its money as in
+     * {@link MarketBook}.
+     *
+     * @return sum of available * rate of those lenders, null if the market can not cover the amount
+     */
+    BigDecimal weightedCovering(BigDecimal amount) {
+        lock.readLock().lock();
+        try {
+            if (root == null || root.sumAvailable.compareTo(amount) < 0) {
+                return null;
+            }
+            BigDecimal before = BigDecimal.ZERO;
+            BigDecimal weighted = BigDecimal.ZERO;
+            Node node = root;
+            while (true) {
+                BigDecimal withLeft = before.add(sumAvailable(node.left));
+                if (withLeft.compareTo(amount) >= 0) {
+                    node = node.left;
+                    continue;
+                }
+                weighted = weighted.add(sumWeighted(node.left)).add(node.weighted);
+                before = withLeft.add(node.lender.getAvailable());
+                if (before.compareTo(amount) >= 0) {
+                    return weighted;
+                }
+                node = node.right;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of the cheapest lenders covering the amount, 0 if the market can not cover it
+     */
+    int lendersCovering(BigDecimal amount) {
+        lock.readLock().lock();
+        try {
+            if (root == null || root.sumAvailable.compareTo(amount) < 0) {
+                return 0;
+            }
+            BigDecimal before = BigDecimal.ZERO;
+            int lenders = 0;
+            Node node = root;
+            while (true) {
+                BigDecimal withLeft = before.add(sumAvailable(node.left));
+                if (withLeft.compareTo(amount) >= 0) {
+                    node = node.left;
+                    continue;
+                }
+                lenders += count(node.left) + 1;
+                before = withLeft.add(node.lender.getAvailable());
+                if (before.compareTo(amount) >= 0) {
+                    return lenders;
+                }
+                node = node.right;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    BigDecimal getTotalAvailable() {
+        lock.readLock().lock();
+        try {
+            return sumAvailable(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return lenders sorted by rate, as a {@link MarketBook} of the same market would have them
+     */
+    List<Lender> getLenders() {
+        lock.readLock().lock();
+        try {
+            List<Lender> lenders = new ArrayList<>(size);
+            inOrder(root, lenders);
+            return lenders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void inOrder(Node node, List<Lender> lenders) {
+        if (node != null) {
+            inOrder(node.left, lenders);
+            lenders.add(node.lender);
+            inOrder(node.right, lenders);
+        }
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node.update();
+        }
+        if (node.priority > tree.priority) {
+            Node[] split = split(tree, node);
+            node.left = split[0];
+            node.right = split[1];
+            return node.update();
+        }
+        if (node.compareTo(tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        return tree.update();
+    }
+
+    /**
+     * @return subtrees of the nodes before and after the key node
+     */
+    private static Node[] split(Node tree, Node key) {
+        if (tree == null) {
+            return new Node[] {null, null};
+        }
+        if (tree.compareTo(key) < 0) {
+            Node[] split = split(tree.right, key);
+            tree.right = split[0];
+            split[0] = tree.update();
+            return split;
+        }
+        Node[] split = split(tree.left, key);
+        tree.left = split[1];
+        split[1] = tree.update();
+        return split;
+    }
+
+    private static Node delete(Node tree, Node node) {
+        if (tree == node) {
+            return merge(tree.left, tree.right);
+        }
+        if (node.compareTo(tree) < 0) {
+            tree.left = delete(tree.left, node);
+        } else {
+            tree.right = delete(tree.right, node);
+        }
+        return tree.update();
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.update();
+        }
+        right.left = merge(left, right.left);
+        return right.update();
+    }
+
+    private static BigDecimal sumAvailable(Node node) {
+        return node == null ? BigDecimal.ZERO : node.sumAvailable;
+    }
+
+    private static BigDecimal sumWeighted(Node node) {
+        return node == null ? BigDecimal.ZERO : node.sumWeighted;
+    }
+
+    private static int count(Node node) {
+        return node == null ? 0 : node.count;
+    }
+
+    private static class Node implements Comparable<Node> {
+
+        private final Lender lender;
+        // Order among lenders with the same rate
+        private final long sequence;
+        private final int priority;
+        // available * rate of this lender
+        private final BigDecimal weighted;
+        private Node left;
+        private Node right;
+        // Of this subtree
+        private BigDecimal sumAvailable;
+        private BigDecimal sumWeighted;
+        private int count;
+
+        Node(Lender lender, long sequence, int priority) {
+            this.lender = lender;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.weighted = lender.getAvailable().multiply(lender.getRate());
+        }
+
+        Node update() {
+            sumAvailable = sumAvailable(left).add(lender.getAvailable()).add(sumAvailable(right));
+            sumWeighted = sumWeighted(left).add(weighted).add(sumWeighted(right));
+            count = count(left) + 1 + count(right);
+            return this;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            int byRate = lender.getRate().compareTo(other.lender.getRate());
+            return byRate != 0 ? byRate : Long.compare(sequence, other.sequence);
+        }
+    }
+}
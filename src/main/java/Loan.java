@@ -1,19 +1,95 @@
-import ch.obermuhlner.math.big.BigDecimalMath;
-
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.IntStream;
-
-import static java.util.stream.Collectors.toList;
 
 class Loan {
 
-    private static final BigDecimal DURATION_MONTHS = new BigDecimal("36");
+    static final int MIN_AMOUNT = 1000;
+    static final int MAX_AMOUNT = 15000;
+    static final int AMOUNT_STEP = 100;
+    // Number of valid amounts, from MIN_AMOUNT to MAX_AMOUNT
+    static final int AMOUNT_STEPS = (MAX_AMOUNT - MIN_AMOUNT) / AMOUNT_STEP + 1;
+    // Loan products, in months
+    static final int[] TERMS_MONTHS = {12, 24, 36, 48, 60};
+    static final int DEFAULT_TERM_MONTHS = 36;
+    // Relative error bound of the double repayments of calculateRounded, 128 ulps: about 10 operations of 1 ulp
+    // each, log1p and expm1 included, with a wide margin
+    private static final double DOUBLE_ERROR = 0x1p-46;
+
+    private final AnnuityCache annuityCache;
+    private final QuoteMetrics metrics;
+    private final int termMonths;
+    private final BigDecimal durationMonths;
+    // Precision of the rate and of the repayments
+    private final MathContext mathContext;
+
+    Loan() {
+        this(new AnnuityCache(AnnuityCache.DEFAULT_SIZE));
+    }
+
+    /**
+     * @param annuityCache shared by the quotes of this loan, and of other loans if wanted
+     */
+    Loan(AnnuityCache annuityCache) {
+        this(annuityCache, QuoteMetrics.DISABLED);
+    }
+
+    /**
+     * @param metrics latency of every stage of the quotes of this loan
+     */
+    Loan(AnnuityCache annuityCache, QuoteMetrics metrics) {
+        this(annuityCache, metrics, DEFAULT_TERM_MONTHS);
+    }
+
+    /**
+     * @param termMonths one of {@link #TERMS_MONTHS}
+     */
+    Loan(AnnuityCache annuityCache, QuoteMetrics metrics, int termMonths) {
+        this(annuityCache, metrics, termMonths, MathContext.DECIMAL128);
+    }
+
+    /**
+     * @param mathContext precision of the rate and of the repayments, DECIMAL128 for the quotes Main displays
+     */
+    Loan(AnnuityCache annuityCache, QuoteMetrics metrics, int termMonths, MathContext mathContext) {
+        validateTerm(termMonths);
+        this.annuityCache = annuityCache;
+        this.metrics = metrics;
+        this.termMonths = termMonths;
+        this.durationMonths = new BigDecimal(termMonths);
+        this.mathContext = mathContext;
+    }
+
+    /**
+     * @return loan of another term sharing the annuity cache and the metrics of this one
+     */
+    Loan withTerm(int termMonths) {
+        return termMonths == this.termMonths ? this : new Loan(annuityCache, metrics, termMonths, mathContext);
+    }
+
+    /**
+     * @return loan of another precision sharing the annuity cache, the metrics and the term of this one
+     */
+    Loan withMathContext(MathContext mathContext) {
+        return mathContext.equals(this.mathContext) ? this :
+                new Loan(annuityCache, metrics, termMonths, mathContext);
+    }
+
+    QuoteMetrics getMetrics() {
+        return metrics;
+    }
+
+    int getTermMonths() {
+        return termMonths;
+    }
+
+    MathContext getMathContext() {
+        return mathContext;
+    }
 
     /**
      * Calculate as low a rate to the borrower as possible.
@@ -26,83 +102,402 @@ class Loan {
      * @return borrower info when possible
      */
     Optional<BorrowerInfo> calculate(String filenamePath, double requestedAmount, CSV csv) {
-        if (requestedAmount < 1000 || requestedAmount > 15000) {
-            throw new IllegalArgumentException(
-                    "Requested quantity '" + requestedAmount + "'should be between £1000 and £15000 inclusive");
-        }
-        if (requestedAmount % 100 != 0) {
-            throw new IllegalArgumentException("Requested quantity '" + requestedAmount
-                    + "' should be of any £100 increment between £1000 and £15000 inclusive");
-        }
-        List<Lender> lenders;
+        validate(requestedAmount);
+        long start = metrics.start();
+        MarketBook book;
         try {
-            lenders = csv.extractLenders(filenamePath);
+            // Lenders a loan of £15000 can not reach are not kept
+            CheapestLenders cheapest = csv.extractCheapestLenders(filenamePath, new BigDecimal(MAX_AMOUNT));
+            metrics.record(QuoteMetrics.Stage.READ, start);
+            long sortStart = metrics.start();
+            book = new MarketBook(cheapest.getLenders());
+            metrics.record(QuoteMetrics.Stage.SORT, sortStart);
         } catch (IOException e) {
             return Optional.empty();
         }
-        if (lenders.size() == 0) {
+        return quote(book, requestedAmount, start);
+    }
+
+    /**
+     * Same as {@link #calculate(String, double, CSV)} against a market already loaded in memory,
+     * so many quotes can share one read of the CSV file.
+     *
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(MarketBook book, double requestedAmount) {
+        validate(requestedAmount);
+        return quote(book, requestedAmount, metrics.start());
+    }
+
+    /**
+     * Same as {@link #calculate(MarketBook, double)} with the fixed point engine: only the final annuity step uses
+     * BigDecimal, the rate is the same as the one computed by the BigDecimal engine.
+     *
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(FixedPointBook book, double requestedAmount) {
+        validate(requestedAmount);
+        long start = metrics.start();
+        long requestedPence = (long) requestedAmount * 100;
+        int lastLender = book.indexCovering(requestedPence);
+        if (lastLender < 0) {
+            metrics.rejected(start);
+            return Optional.empty();
+        }
+        // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
+        BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        BigDecimal weighted = BigDecimal.valueOf(book.getCumulativeWeighted(lastLender), FixedPointBook.WEIGHTED_SCALE);
+        BigDecimal rate = weighted.divide(requestedAmountP, mathContext);
+        metrics.record(QuoteMetrics.Stage.RATE, start);
+        BorrowerInfo borrowerInfo = borrowerInfo(requestedAmountP, rate);
+        metrics.served(start, lastLender + 1);
+        return Optional.of(borrowerInfo);
+    }
+
+    /**
+     * Same as {@link #calculate(FixedPointBook, double)} against the rate tiers of a market.
+     *
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(RateTierBook book, double requestedAmount) {
+        validate(requestedAmount);
+        long start = metrics.start();
+        long requestedPence = (long) requestedAmount * 100;
+        long weightedPence = book.weightedCovering(requestedPence);
+        if (weightedPence < 0) {
+            metrics.rejected(start);
+            return Optional.empty();
+        }
+        // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
+        BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        BigDecimal weighted = BigDecimal.valueOf(weightedPence, FixedPointBook.WEIGHTED_SCALE);
+        BigDecimal rate = weighted.divide(requestedAmountP, mathContext);
+        metrics.record(QuoteMetrics.Stage.RATE, start);
+        BorrowerInfo borrowerInfo = borrowerInfo(requestedAmountP, rate);
+        if (metrics.isEnabled()) {
+            metrics.served(start, (int) Math.min(Integer.MAX_VALUE, book.lendersCovering(requestedPence)));
+        }
+        return Optional.of(borrowerInfo);
+    }
+
+    /**
+     * Same as {@link #calculate(FixedPointBook, double)} with the rate and the annuity factor of the amount looked up
+     * in a table of the market, so the monthly repayment is a single multiply.
+     *
+     * @param table of the term of this loan
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(AnnuityTable table, double requestedAmount) {
+        validate(requestedAmount);
+        long start = metrics.start();
+        int step = ((int) requestedAmount - MIN_AMOUNT) / AMOUNT_STEP;
+        BigDecimal rate = table.getRate(step);
+        if (rate == null) {
+            metrics.rejected(start);
+            return Optional.empty();
+        }
+        // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
+        BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        long annuityStart = metrics.start();
+        BigDecimal factor = table.getFactor(termMonths, step);
+        BigDecimal monthlyRepayment = factor == null ?
+                requestedAmountP.divide(durationMonths, mathContext) :
+                requestedAmountP.multiply(factor, mathContext);
+        BorrowerInfo borrowerInfo = new BorrowerInfo(requestedAmountP, rate, monthlyRepayment,
+                monthlyRepayment.multiply(durationMonths));
+        metrics.record(QuoteMetrics.Stage.ANNUITY, annuityStart);
+        metrics.served(start, table.getLenders(step));
+        return Optional.of(borrowerInfo);
+    }
+
+    /**
+     * Same as {@link #calculate(FixedPointBook, double)} rounded as Main displays it, with double arithmetic.
+     * <p>
+     * The rate is rounded with integer division, which is exact. The repayments are computed in double with
+     * r = expm1(log1p(rate) / 12) and 1 - (1+r)^(-N) = -expm1(-N * log1p(rate) / 12), and rounded only when they are
+     * further than {@link #DOUBLE_ERROR} from a penny; otherwise, and for a rate of zero, the BigDecimal quote is
+     * rounded instead.
+     *
+     * @return rounded quote when possible
+     */
+    Optional<RoundedQuote> calculateRounded(FixedPointBook book, double requestedAmount) {
+        validate(requestedAmount);
+        long start = metrics.start();
+        int amount = (int) requestedAmount;
+        int lastLender = book.indexCovering(amount * 100L);
+        if (lastLender < 0) {
+            metrics.rejected(start);
+            return Optional.empty();
+        }
+        long weighted = book.getCumulativeWeighted(lastLender);
+        // rate * 1000 = weighted / 10^WEIGHTED_SCALE / amount * 1000
+        long rateTenthsOfPercent = weighted / (amount * 100000L);
+        metrics.record(QuoteMetrics.Stage.RATE, start);
+        RoundedQuote quote = null;
+        // The error bound of the double path is the one of DECIMAL128 quotes
+        if (weighted != 0 && mathContext.equals(MathContext.DECIMAL128)) {
+            long annuityStart = metrics.start();
+            double logRate = Math.log1p(weighted / (amount * 1e8));
+            double monthlyRate = Math.expm1(logRate / 12);
+            double discount = -Math.expm1(-termMonths * logRate / 12);
+            double monthlyPence = monthlyRate * amount / discount * 100;
+            long monthly = floorCertain(monthlyPence);
+            long total = floorCertain(monthlyPence * termMonths);
+            if (monthly >= 0 && total >= 0) {
+                metrics.record(QuoteMetrics.Stage.ANNUITY, annuityStart);
+                quote = new RoundedQuote(amount, termMonths, rateTenthsOfPercent, monthly, total, false);
+            }
+        }
+        if (quote == null) {
+            // Same as the quote of calculate(FixedPointBook, double), borrowerInfo records the ANNUITY stage
+            BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+            BigDecimal rate = BigDecimal.valueOf(weighted, FixedPointBook.WEIGHTED_SCALE)
+                    .divide(requestedAmountP, mathContext);
+            quote = RoundedQuote.of(borrowerInfo(requestedAmountP, rate), termMonths);
+        }
+        metrics.served(start, lastLender + 1);
+        return Optional.of(quote);
+    }
+
+    /**
+     * @return whole part of a positive double result, -1 if its error could cross a whole number
+     */
+    private static long floorCertain(double value) {
+        double floor = Math.floor(value);
+        double error = value * DOUBLE_ERROR;
+        return value - floor > error && floor + 1 - value > error ? (long) floor : -1;
+    }
+
+    /**
+     * Rate of every valid amount in the market and its annuity factor r/(1 - (1+r)^(-N)) for every term.
+     *
+     * @param termsMonths terms the table is used for
+     */
+    AnnuityTable tabulate(FixedPointBook book, int... termsMonths) {
+        for (int term : termsMonths) {
+            validateTerm(term);
+        }
+        BigDecimal[] rates = new BigDecimal[AMOUNT_STEPS];
+        int[] lenders = new int[AMOUNT_STEPS];
+        BigDecimal[][] factors = new BigDecimal[termsMonths.length][AMOUNT_STEPS];
+        for (int step = 0; step < AMOUNT_STEPS; step++) {
+            long amount = MIN_AMOUNT + (long) step * AMOUNT_STEP;
+            int lastLender = book.indexCovering(amount * 100);
+            if (lastLender < 0) {
+                // Larger amounts are not covered either
+                break;
+            }
+            // Same representation as the single quote of a double amount, "1000.0"
+            BigDecimal requestedAmountP = new BigDecimal("" + (double) amount);
+            BigDecimal weighted = BigDecimal.valueOf(book.getCumulativeWeighted(lastLender),
+                    FixedPointBook.WEIGHTED_SCALE);
+            rates[step] = weighted.divide(requestedAmountP, mathContext);
+            lenders[step] = lastLender + 1;
+            if (rates[step].compareTo(BigDecimal.ZERO) != 0) {
+                for (int t = 0; t < termsMonths.length; t++) {
+                    AnnuityCache.Annuity annuity = AnnuityCache.Annuity.of(rates[step], termsMonths[t],
+                            mathContext);
+                    factors[t][step] = annuity.getMonthlyRate().divide(annuity.getDiscount(), mathContext);
+                }
+            }
+        }
+        return new AnnuityTable(termsMonths, rates, lenders, factors);
+    }
+
+    /**
+     * Same as {@link #calculate(MarketBook, double)} against a market changing one lender at a time.
+     *
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(LiveMarket market, double requestedAmount) {
+        validate(requestedAmount);
+        long start = metrics.start();
+        // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
+        BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        BigDecimal weighted = market.weightedCovering(requestedAmountP);
+        if (weighted == null) {
+            metrics.rejected(start);
             return Optional.empty();
         }
-        double totalAmount = lenders.stream().mapToDouble(lender -> lender.getAvailable().doubleValue()).sum();
-        if (totalAmount < requestedAmount) {
+        BigDecimal rate = weighted.divide(requestedAmountP, mathContext);
+        metrics.record(QuoteMetrics.Stage.RATE, start);
+        BorrowerInfo borrowerInfo = borrowerInfo(requestedAmountP, rate);
+        if (metrics.isEnabled()) {
+            metrics.served(start, market.lendersCovering(requestedAmountP));
+        }
+        return Optional.of(borrowerInfo);
+    }
+
+    /**
+     * Same as {@link #calculate(MarketBook, double)} against the market of all the lenders of the shards.
+     *
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(ShardedMarket market, double requestedAmount) {
+        validate(requestedAmount);
+        long start = metrics.start();
+        // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
+        BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        BigDecimal weighted = market.weightedCovering(requestedAmountP);
+        if (weighted == null) {
+            metrics.rejected(start);
             return Optional.empty();
         }
+        BigDecimal rate = weighted.divide(requestedAmountP, mathContext);
+        metrics.record(QuoteMetrics.Stage.RATE, start);
+        BorrowerInfo borrowerInfo = borrowerInfo(requestedAmountP, rate);
+        if (metrics.isEnabled()) {
+            metrics.served(start, (int) Math.min(Integer.MAX_VALUE, market.lendersCovering(requestedAmountP)));
+        }
+        return Optional.of(borrowerInfo);
+    }
+
+    /**
+     * Accepts a quote, taking the money from the cheapest lenders with money left, so no other reservation can get it.
+     * Unlike {@link #calculate(MarketBook, double)} the last lender only weights the money taken from it.
+     *
+     * @return reservation when the money left covers the amount
+     */
+    Optional<Reservation> reserve(ReservationBook book, double requestedAmount) {
+        validate(requestedAmount);
+        Optional<List<ReservationBook.Allocation>> allocations = book.reserve((long) requestedAmount * 100);
+        if (!allocations.isPresent()) {
+            return Optional.empty();
+        }
+        // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
+        BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        BigDecimal rate = reservedRate(allocations.get(), requestedAmountP);
+        return Optional.of(new Reservation(borrowerInfo(requestedAmountP, rate), allocations.get()));
+    }
+
+    /**
+     * Rate {@link #reserve(ReservationBook, double)} quotes for the money taken, without the repayments.
+     */
+    BigDecimal reservedRate(List<ReservationBook.Allocation> allocations, BigDecimal requestedAmountP) {
+        long weighted = 0;
+        for (ReservationBook.Allocation allocation : allocations) {
+            weighted += allocation.getWeighted();
+        }
+        return BigDecimal.valueOf(weighted, FixedPointBook.WEIGHTED_SCALE).divide(requestedAmountP, mathContext);
+    }
+
+    /**
+     * Gives the money of a reservation back to its lenders.
+     *
+     * @return if it was released by this call, false if it already was
+     */
+    boolean release(ReservationBook book, Reservation reservation) {
+        if (!reservation.markReleased()) {
+            return false;
+        }
+        book.release(reservation.getAllocations());
+        return true;
+    }
+
+    /**
+     * @param start of the quote, from {@link QuoteMetrics#start()}
+     */
+    private Optional<BorrowerInfo> quote(MarketBook book, double requestedAmount, long start) {
         // http://www.stichlberger.com/software/java-bigdecimal-gotchas/
         BigDecimal requestedAmountP = new BigDecimal("" + requestedAmount);
+        if (book.size() == 0 || book.getTotalAvailable().compareTo(requestedAmountP) < 0) {
+            metrics.rejected(start);
+            return Optional.empty();
+        }
 
-        BigDecimal minLendersRate = calculateRate(requestedAmount, lenders);
+        long rateStart = metrics.start();
+        int lastLender = book.indexCovering(requestedAmountP);
+        BigDecimal rate = book.getCumulativeWeighted(lastLender).divide(requestedAmountP, mathContext);
+        metrics.record(QuoteMetrics.Stage.RATE, rateStart);
+        BorrowerInfo borrowerInfo = borrowerInfo(requestedAmountP, rate);
+        metrics.served(start, lastLender + 1);
+        return Optional.of(borrowerInfo);
+    }
 
+    /**
+     * Quotes every valid amount, from £1000 to £15000 in £100 steps, in one sweep over the book.
+     * The cutoff lender only moves forward from one amount to the next.
+     *
+     * @return borrower info of every amount the market can satisfy, in ascending order of amount
+     */
+    List<BorrowerInfo> calculateAll(MarketBook book) {
+        List<BorrowerInfo> result = new ArrayList<>(AMOUNT_STEPS);
+        int lastLender = 0;
+        for (int amount = MIN_AMOUNT; amount <= MAX_AMOUNT; amount += AMOUNT_STEP) {
+            // Same representation as the single quote of a double amount, "1000.0"
+            BigDecimal requestedAmountP = new BigDecimal("" + (double) amount);
+            while (lastLender < book.size()
+                    && book.getCumulativeAvailable(lastLender).compareTo(requestedAmountP) < 0) {
+                lastLender++;
+            }
+            if (lastLender == book.size()) {
+                break;
+            }
+            BigDecimal rate = book.getCumulativeWeighted(lastLender).divide(requestedAmountP, mathContext);
+            result.add(borrowerInfo(requestedAmountP, rate));
+        }
+        return result;
+    }
+
+    /**
+     * Month by month repayment of a quote of this loan, computed lazily.
+     *
+     * @param borrowerInfo quote returned by this loan
+     * @return schedule whose payments add up to the total repayment of the quote
+     */
+    AmortizationSchedule schedule(BorrowerInfo borrowerInfo) {
+        BigDecimal monthlyRate = borrowerInfo.getRate().compareTo(BigDecimal.ZERO) == 0 ?
+                BigDecimal.ZERO :
+                annuityCache.get(borrowerInfo.getRate(), termMonths, mathContext).getMonthlyRate();
+        return new AmortizationSchedule(borrowerInfo, termMonths, monthlyRate, mathContext);
+    }
+
+    private BorrowerInfo borrowerInfo(BigDecimal requestedAmountP, BigDecimal minLendersRate) {
+        long start = metrics.start();
         // https://en.wikipedia.org/wiki/Mortgage_calculator#Monthly_payment_formula
         // r*P/(1 - (1+r)^(-N))      if r != 0
         // P/N                          if r == 0
         BigDecimal monthlyRepayment;
         if (minLendersRate.compareTo(BigDecimal.ZERO) == 0) {
-            monthlyRepayment = requestedAmountP.divide(DURATION_MONTHS, MathContext.DECIMAL128);
+            monthlyRepayment = requestedAmountP.divide(durationMonths, mathContext);
         } else {
-            BigDecimal r = calculateEffectiveInterestInMonths(minLendersRate);
-            BigDecimal tmp = r.add(BigDecimal.ONE).pow(-DURATION_MONTHS.intValue(), MathContext.DECIMAL128);
-            BigDecimal dividend = BigDecimal.ONE.subtract(tmp);
-            monthlyRepayment = r.multiply(requestedAmountP).divide(dividend, MathContext.DECIMAL128);
+            monthlyRepayment = annuityCache.get(minLendersRate, termMonths, mathContext)
+                    .monthlyRepayment(requestedAmountP, mathContext);
         }
-        BigDecimal totalRepayment = monthlyRepayment.multiply(DURATION_MONTHS);
+        BigDecimal totalRepayment = monthlyRepayment.multiply(durationMonths);
+        metrics.record(QuoteMetrics.Stage.ANNUITY, start);
 
-        return Optional.of(new BorrowerInfo(requestedAmountP, minLendersRate, monthlyRepayment, totalRepayment));
+        return new BorrowerInfo(requestedAmountP, minLendersRate, monthlyRepayment, totalRepayment);
     }
 
-    private BigDecimal calculateRate(double requestedAmount, List<Lender> lenders) {
-        List<Lender> sortedLenders = lenders.stream().sorted(Comparator.comparing(Lender::getRate)).collect(toList());
-        List<BigDecimal> moneyLended = moneyLended(requestedAmount, sortedLenders);
-
-        BigDecimal totalMoneyLended = IntStream.range(0, moneyLended.size())
-                .mapToObj(index -> moneyLended.get(index).multiply(sortedLenders.get(index).getRate()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return totalMoneyLended.divide(new BigDecimal("" + requestedAmount), MathContext.DECIMAL128);
+    static void validate(double requestedAmount) {
+        if (requestedAmount < MIN_AMOUNT || requestedAmount > MAX_AMOUNT) {
+            throw new IllegalArgumentException(
+                    "Requested quantity '" + requestedAmount + "'should be between £1000 and £15000 inclusive");
+        }
+        if (requestedAmount % AMOUNT_STEP != 0) {
+            throw new IllegalArgumentException("Requested quantity '" + requestedAmount
+                    + "' should be of any £100 increment between £1000 and £15000 inclusive");
+        }
     }
 
-    private List<BigDecimal> moneyLended(double requestedAmount, List<Lender> sortedLenders) {
-        List<BigDecimal> moneyLended = new ArrayList<>(sortedLenders.size());
-
-        int i = 0;
-        Double remaining = requestedAmount;
-        while (remaining > 0) {
-            if (remaining - sortedLenders.get(i).getAvailable().doubleValue() >= 0) {
-                remaining = remaining - sortedLenders.get(i).getAvailable().doubleValue();
-
-            } else {
-                remaining = 0d;
+    static void validateTerm(int termMonths) {
+        for (int term : TERMS_MONTHS) {
+            if (term == termMonths) {
+                return;
             }
-            moneyLended.add(sortedLenders.get(i).getAvailable());
-            i++;
         }
-        return moneyLended;
+        throw new IllegalArgumentException(
+                "Term '" + termMonths + "' should be one of " + Arrays.toString(TERMS_MONTHS) + " months");
     }
 
-    private BigDecimal calculateEffectiveInterestInMonths(BigDecimal nominalInterest) {
-        // Formula: ((1+nominalInterest)^(1/12))-1
-        BigDecimal exp = BigDecimal.ONE.divide(new BigDecimal("12"), MathContext.DECIMAL128);
-        return BigDecimalMath.pow(BigDecimal.ONE.add(nominalInterest), exp, MathContext.DECIMAL128)
-                .subtract(BigDecimal.ONE);
+    /**
+     * Looks up the cheapest lenders covering the requested amount in the running totals of the book.
+     * The last of those lenders is weighted with all its available money.
+     */
+    BigDecimal calculateRate(BigDecimal requestedAmount, MarketBook book) {
+        int lastLender = book.indexCovering(requestedAmount);
+        return book.getCumulativeWeighted(lastLender).divide(requestedAmount, mathContext);
     }
 
 }
@@ -1,14 +1,87 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
+    // Second argument printing the quote of every valid amount instead of a single one
+    static final String ALL_AMOUNTS = "--all";
+    // Second argument writing the binary snapshot of the CSV file, used by later runs while the CSV does not change
+    static final String SNAPSHOT = "--snapshot";
+    // Second argument keeping the market in memory and answering quotes over HTTP, see QuoteServer
+    static final String SERVE = "--serve";
+    // Second argument quoting every amount of the file in the third argument, or of the standard input without it
+    static final String BATCH = "--batch";
+    // Second argument running Monte Carlo scenarios of random borrowers drawing the market down, see MarketSimulation
+    static final String SIMULATE = "--simulate";
+    // System properties of the server, port 0 picks a free port, 0 workers a virtual thread per request if possible
+    static final String PORT_PROPERTY = "quote.port";
+    static final String WORKERS_PROPERTY = "quote.workers";
+    // System properties of the metrics of the server, "text" or "json" prints them every period in seconds
+    static final String METRICS_PROPERTY = "quote.metrics";
+    static final String METRICS_PERIOD_PROPERTY = "quote.metrics.period";
+    // System properties of the simulation, the seed is random unless set
+    static final String SCENARIOS_PROPERTY = "simulation.scenarios";
+    static final String BORROWERS_PROPERTY = "simulation.borrowers";
+    static final String SEED_PROPERTY = "simulation.seed";
+
     public static void main(String[] args) {
         if (args == null || args.length == 0) {
             throw new IllegalArgumentException("Arguments to run this program can not be empty");
         }
-        if (args.length != 2) {
-            throw new IllegalArgumentException("The number of Arguments to run this program should be 2");
+        if (args.length == 3 && BATCH.equals(args[1])) {
+            batch(args[0], args[2]);
+            return;
+        }
+        if (args.length != 2 && args.length != 3) {
+            throw new IllegalArgumentException("The number of Arguments to run this program should be 2, "
+                    + "or 3 with the term in months");
+        }
+        int termMonths = Loan.DEFAULT_TERM_MONTHS;
+        if (args.length == 3) {
+            try {
+                termMonths = Integer.parseInt(args[2]);
+            } catch (NumberFormatException ne) {
+                throw new IllegalArgumentException("The third argument must be the term in months");
+            }
+            Loan.validateTerm(termMonths);
+        }
+        if (ALL_AMOUNTS.equals(args[1])) {
+            printAll(args[0], termMonths);
+            return;
+        }
+        if (args.length == 2 && SNAPSHOT.equals(args[1])) {
+            compileSnapshot(args[0]);
+            return;
+        }
+        if (args.length == 2 && BATCH.equals(args[1])) {
+            batch(args[0], null);
+            return;
+        }
+        if (args.length == 2 && SIMULATE.equals(args[1])) {
+            simulate(args[0]);
+            return;
+        }
+        if (args.length == 2 && SERVE.equals(args[1])) {
+            serve(args[0]);
+            return;
         }
         double loanAmount;
         try {
@@ -17,28 +90,185 @@ public class Main {
             throw new IllegalArgumentException("The second argument must be a number");
         }
 
-        Loan loan = new Loan();
-        Optional<BorrowerInfo> borrowerInfo = loan.calculate(args[0], loanAmount, new CSV());
+        Loan loan = new Loan().withTerm(termMonths);
+        Optional<BorrowerInfo> borrowerInfo;
+        List<String> shards = shards(args[0]);
+        if (!shards.isEmpty()) {
+            try {
+                borrowerInfo = loan.calculate(ShardedMarket.load(shards, new MappedCSV(), ForkJoinPool.commonPool()),
+                        loanAmount);
+            } catch (IOException e) {
+                borrowerInfo = Optional.empty();
+            }
+        } else {
+            Optional<MarketSnapshot> snapshot = loadSnapshot(args[0]);
+            borrowerInfo = snapshot.isPresent() ?
+                    loan.calculate(snapshot.get().getFixedPointBook(), loanAmount) :
+                    loan.calculate(args[0], loanAmount, new CSV());
+        }
 
-        // Repayment amounts should be displayed to 2 decimal places and
-        // the rate of the loan should be displayed to one decimal place.
-        //
-        // Requested amount: £XXXX
-        // Rate: X.X%
-        // Monthly repayment: £XX.XX
-        // Total repayment: £XXXX.XX
         if (borrowerInfo.isPresent()) {
-            BorrowerInfo borrowerInfo1 = borrowerInfo.get();
-            System.out.println(String.format("Requested amount: £%d", borrowerInfo1.getRequestedAmount().intValue()));
-            System.out.println(String.format("Rate: %1$,.1f%%",
-                    borrowerInfo1.getRate().multiply(new BigDecimal("100")).setScale(1, BigDecimal.ROUND_DOWN).doubleValue()));
-            System.out.println(String.format("Monthly repayment: £%1$.2f",
-                    borrowerInfo1.getMonthlyRepayment().setScale(2, BigDecimal.ROUND_DOWN).doubleValue()));
-            System.out.println(String.format("Total repayment: £%1$.2f",
-                    borrowerInfo1.getTotalRepayment().setScale(2, BigDecimal.ROUND_DOWN).doubleValue()));
+            print(borrowerInfo.get());
         } else {
             System.out.println("It is not possible to provide a quote at that time.");
         }
     }
 
+    /**
+     * @return snapshot of the CSV file when it is up to date, otherwise the CSV file is read
+     */
+    /**
+     * @return market files separated by the path separator, empty when the argument is one file, which is also the
+     * case of a file whose name contains the path separator, or when any of the parts is not a file
+     */
+    private static List<String> shards(String filePath) {
+        String[] parts = filePath.split(File.pathSeparator);
+        if (parts.length < 2 || new File(filePath).isFile()) {
+            return Collections.emptyList();
+        }
+        for (String part : parts) {
+            if (!new File(part).isFile()) {
+                return Collections.emptyList();
+            }
+        }
+        return Arrays.asList(parts);
+    }
+
+    private static Optional<MarketSnapshot> loadSnapshot(String filePath) {
+        try {
+            return MarketSnapshot.load(filePath);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void compileSnapshot(String filePath) {
+        try {
+            System.out.println("Snapshot written: " + MarketSnapshot.compile(filePath, new MappedCSV()));
+        } catch (IOException | IllegalArgumentException e) {
+            // Not valid, or more decimals than a snapshot keeps
+            System.out.println("It is not possible to write the snapshot of " + filePath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the quote server, which keeps running after this method returns.
+     *
+     * @return server, null if the market could not be read
+     */
+    static QuoteServer serve(String filePath) {
+        try {
+            FixedPointBook book = loadBook(filePath);
+            String metricsFormat = System.getProperty(METRICS_PROPERTY);
+            QuoteMetrics metrics = metricsFormat == null ? QuoteMetrics.DISABLED : new QuoteMetrics();
+            if (metricsFormat != null) {
+                metrics.dumpEvery(Integer.getInteger(METRICS_PERIOD_PROPERTY, 60), TimeUnit.SECONDS,
+                        "json".equals(metricsFormat), System.out::print);
+            }
+            QuoteServer server = new QuoteServer(new Loan(new AnnuityCache(AnnuityCache.DEFAULT_SIZE), metrics), book,
+                    new InetSocketAddress(Integer.getInteger(PORT_PROPERTY, 8080)),
+                    Integer.getInteger(WORKERS_PROPERTY, 0));
+            System.out.println("Quotes at http://localhost:" + server.getAddress().getPort() + QuoteServer.QUOTE_PATH
+                    + "?amount=");
+            return server;
+        } catch (IOException | IllegalArgumentException e) {
+            // Not valid, or more decimals than a fixed point book keeps
+            System.err.println("It is not possible to serve quotes of " + filePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return market of the snapshot when it is up to date, otherwise of the CSV file
+     */
+    private static FixedPointBook loadBook(String filePath) throws IOException {
+        Optional<MarketSnapshot> snapshot = loadSnapshot(filePath);
+        return snapshot.isPresent() ? snapshot.get().getFixedPointBook() :
+                LenderStore.load(filePath, new MappedCSV()).toFixedPointBook();
+    }
+
+    /**
+     * Prints a CSV line per quote, the amounts that can not be quoted, the throughput and read errors go to the
+     * standard error.
+     *
+     * @param amountsPath file with one amount per line, optionally followed by a comma and the term in months,
+     *                    null for the standard input
+     */
+    private static void batch(String filePath, String amountsPath) {
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        Writer quotes = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        Writer errors = new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8), 1 << 16);
+        try (BufferedReader amounts = amountsPath == null ?
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16) :
+                Files.newBufferedReader(Paths.get(amountsPath), StandardCharsets.UTF_8)) {
+            BatchQuoter.Summary summary = new BatchQuoter(new Loan(), loadBook(filePath), workers, workerCount,
+                    BatchQuoter.DEFAULT_CHUNK_LINES).run(amounts, quotes, errors);
+            System.err.println(summary);
+        } catch (IOException | IllegalArgumentException e) {
+            // Not valid, or more decimals than a fixed point book keeps
+            System.err.println("It is not possible to provide a quote at that time: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Prints the rates, fill ratio and money left of the simulation of the market on the common fork join pool.
+     */
+    private static void simulate(String filePath) {
+        MarketSimulation simulation;
+        try {
+            simulation = new MarketSimulation(MarketBook.load(filePath, new MappedCSV()));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("It is not possible to simulate " + filePath + ": " + e.getMessage());
+            return;
+        }
+        long seed = Long.getLong(SEED_PROPERTY, System.nanoTime());
+        System.out.println("Seed: " + seed);
+        System.out.println(simulation.run(ForkJoinPool.commonPool(), Integer.getInteger(SCENARIOS_PROPERTY, 1000),
+                Integer.getInteger(BORROWERS_PROPERTY, 1000), seed));
+    }
+
+    /**
+     * Prints the quote of every £100 step between £1000 and £15000, reading the CSV file once.
+     */
+    private static void printAll(String filePath, int termMonths) {
+        List<BorrowerInfo> ladder;
+        try {
+            ladder = new Loan().withTerm(termMonths).calculateAll(MarketBook.load(filePath, new CSV()));
+        } catch (IOException e) {
+            System.out.println("It is not possible to provide a quote at that time.");
+            return;
+        }
+        for (BorrowerInfo borrowerInfo : ladder) {
+            print(borrowerInfo);
+            System.out.println();
+        }
+        int quoted = ladder.size() * Loan.AMOUNT_STEP;
+        if (Loan.MIN_AMOUNT + quoted <= Loan.MAX_AMOUNT) {
+            System.out.println(String.format("It is not possible to provide a quote from £%d at that time.",
+                    Loan.MIN_AMOUNT + quoted));
+        }
+    }
+
+    // Repayment amounts should be displayed to 2 decimal places and
+    // the rate of the loan should be displayed to one decimal place.
+    //
+    // Requested amount: £XXXX
+    // Rate: X.X%
+    // Monthly repayment: £XX.XX
+    // Total repayment: £XXXX.XX
+    private static void print(BorrowerInfo borrowerInfo) {
+        System.out.println(String.format("Requested amount: £%d", borrowerInfo.getRequestedAmount().intValue()));
+        System.out.println(String.format("Rate: %1$,.1f%%",
+                borrowerInfo.getRate().multiply(new BigDecimal("100")).setScale(1, BigDecimal.ROUND_DOWN).doubleValue()));
+        System.out.println(String.format("Monthly repayment: £%1$.2f",
+                borrowerInfo.getMonthlyRepayment().setScale(2, BigDecimal.ROUND_DOWN).doubleValue()));
+        System.out.println(String.format("Total repayment: £%1$.2f",
+                borrowerInfo.getTotalRepayment().setScale(2, BigDecimal.ROUND_DOWN).doubleValue()));
+    }
+
 }
@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * CSV reader for big market files: the file is memory mapped and rate and available are parsed straight from the
+ * mapped bytes, without a String per line.
+ * <p>
+ * Same validation as {@link CSV}, lines are counted in bytes and names are decoded as UTF-8.
+ * <p>
+ * Disclaimer: Line can not be longer than 512 chars
+ */
+class MappedCSV extends CSV {
+
+    static final int MAX_LINE_LENGTH = 512;
+    private static final byte[] HEADER = "Lender,Rate,Available".getBytes(StandardCharsets.US_ASCII);
+    // Mapped at once, a file bigger than this is read in several windows
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    // Digits of a long that can never overflow
+    private static final int MAX_FAST_DIGITS = 18;
+
+    /**
+     * Gives every lender of the file to the consumer, in file order.
+     *
+     * @param filePath to CSV file
+     * @param consumer of every lender
+     * @throws IOException if reading the file
+     */
+    @Override
+    void readLenders(String filePath, Consumer<Lender> consumer) throws IOException {
+        if (filePath == null || filePath.isEmpty()) {
+            throw new IllegalArgumentException("filePath must not be empty or null");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IllegalArgumentException("File is empty: " + filePath);
+            }
+            long position = headerLength(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, WINDOW_SIZE)),
+                    filePath);
+            readLenders(channel, position, size, filePath, consumer);
+        }
+    }
+
+    /**
+     * @return bytes of the header line, line break included
+     */
+    static int headerLength(ByteBuffer buffer, String filePath) {
+        int end = lineEnd(buffer, 0, buffer.limit());
+        if (end < 0) {
+            end = buffer.limit();
+        }
+        int length = end > 0 && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        boolean valid = length == HEADER.length;
+        for (int i = 0; valid && i < length; i++) {
+            valid = buffer.get(i) == HEADER[i];
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("First line of " + filePath + "is not: 'Lender,Rate,Available'");
+        }
+        return end < buffer.limit() ? end + 1 : end;
+    }
+
+    /**
+     * Reads the lenders of the lines between two line starts of the file, mapping one window at a time.
+     */
+    static void readLenders(FileChannel channel, long from, long to, String filePath, Consumer<Lender> consumer)
+            throws IOException {
+        long position = from;
+        while (position < to) {
+            long length = Math.min(to - position, WINDOW_SIZE);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int consumed = readLenders(window, position + length == to, filePath, consumer);
+            position += consumed;
+        }
+    }
+
+    /**
+     * Parses every complete line of the buffer, from its position to its limit.
+     *
+     * @param endOfInput when the last line of the buffer does not need a line break
+     * @return bytes consumed, which stop before a trailing incomplete line when it is not the end of input
+     */
+    static int readLenders(ByteBuffer buffer, boolean endOfInput, String filePath, Consumer<Lender> consumer) {
+        byte[] name = new byte[MAX_LINE_LENGTH];
+        int start = buffer.position();
+        int limit = buffer.limit();
+        int lineStart = start;
+        while (lineStart < limit) {
+            int lineEnd = lineEnd(buffer, lineStart, Math.min(limit, lineStart + MAX_LINE_LENGTH + 1));
+            if (lineEnd < 0) {
+                if (limit - lineStart > MAX_LINE_LENGTH) {
+                    throw new IllegalArgumentException("Line can not be longer than 512 chars");
+                }
+                if (!endOfInput) {
+                    break;
+                }
+                lineEnd = limit;
+            }
+            consumer.accept(parseLine(buffer, lineStart, lineEnd, name, filePath));
+            lineStart = lineEnd + 1;
+        }
+        return Math.min(lineStart, limit) - start;
+    }
+
+    private static Lender parseLine(ByteBuffer buffer, int start, int end, byte[] name, String filePath) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end - start >= MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("Line can not be longer than 512 chars");
+        }
+        // String.split drops trailing empty fields
+        int fieldsEnd = end;
+        while (fieldsEnd > start && buffer.get(fieldsEnd - 1) == ',') {
+            fieldsEnd--;
+        }
+        int firstComma = indexOfComma(buffer, start, fieldsEnd);
+        int secondComma = firstComma < 0 ? -1 : indexOfComma(buffer, firstComma + 1, fieldsEnd);
+        if (secondComma < 0 || indexOfComma(buffer, secondComma + 1, fieldsEnd) >= 0) {
+            throw new IllegalArgumentException(
+                    "Content of " + filePath + " is incorrect, expected 3 words separated by ,: " + fields(buffer,
+                            start, end));
+        }
+        BigDecimal rate = parseDecimal(buffer, firstComma + 1, secondComma);
+        if (rate.signum() < 0) {
+            throw new IllegalArgumentException("rate of " + fields(buffer, start, end) + " must be positive number");
+        }
+        BigDecimal amount = parseDecimal(buffer, secondComma + 1, fieldsEnd);
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("amount of " + fields(buffer, start, end) + " must be positive number");
+        }
+        int nameLength = firstComma - start;
+        for (int i = 0; i < nameLength; i++) {
+            name[i] = buffer.get(start + i);
+        }
+        return new Lender(new String(name, 0, nameLength, StandardCharsets.UTF_8), rate, amount);
+    }
+
+    /**
+     * Plain decimals such as 0.075 or 640 are read digit by digit, anything else (exponents, very long numbers or
+     * invalid numbers) goes through {@link BigDecimal#BigDecimal(String)}, so the result is always equal to it.
+     */
+    static BigDecimal parseDecimal(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (++digits > MAX_FAST_DIGITS) {
+                    return slowParseDecimal(buffer, start, end);
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return slowParseDecimal(buffer, start, end);
+            }
+        }
+        if (digits == 0) {
+            return slowParseDecimal(buffer, start, end);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private static BigDecimal slowParseDecimal(ByteBuffer buffer, int start, int end) {
+        return new BigDecimal(text(buffer, start, end));
+    }
+
+    /**
+     * @return index of the first line break between start and end, -1 if there is none
+     */
+    static int lineEnd(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfComma(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Only for error messages, same format as the fields printed by CSV
+    private static List<String> fields(ByteBuffer buffer, int start, int end) {
+        return Arrays.asList(text(buffer, start, end).split(","));
+    }
+
+    private static String text(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lenders of one market sorted by rate, built once and shared by every quote against that market.
+ * <p>
+ * Lenders with the same rate keep the order they had in the CSV file.
+ */
+class MarketBook {
+
+    private final List<Lender> lenders;
+    // cumulativeAvailable[i] is the money available from lenders 0..i
+    private final BigDecimal[] cumulativeAvailable;
+    // cumulativeWeighted[i] is the sum of available * rate of lenders 0..i
+    private final BigDecimal[] cumulativeWeighted;
+
+    MarketBook(List<Lender> lenders) {
+        List<Lender> sortedLenders = new ArrayList<>(lenders);
+        // List.sort is stable, same as the stream sort used by Loan before the book existed
+        sortedLenders.sort(Comparator.comparing(Lender::getRate));
+        this.lenders = Collections.unmodifiableList(sortedLenders);
+        this.cumulativeAvailable = new BigDecimal[sortedLenders.size()];
+        this.cumulativeWeighted = new BigDecimal[sortedLenders.size()];
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal weighted = BigDecimal.ZERO;
+        for (int i = 0; i < sortedLenders.size(); i++) {
+            Lender lender = sortedLenders.get(i);
+            total = total.add(lender.getAvailable());
+            weighted = weighted.add(lender.getAvailable().multiply(lender.getRate()));
+            cumulativeAvailable[i] = total;
+            cumulativeWeighted[i] = weighted;
+        }
+    }
+
+    /**
+     * @param filePath to CSV file
+     * @param csv      reader of the file
+     * @return book with every lender in the CSV file
+     * @throws IOException if reading the file
+     */
+    static MarketBook load(String filePath, CSV csv) throws IOException {
+        return new MarketBook(csv.extractLenders(filePath));
+    }
+
+    int size() {
+        return lenders.size();
+    }
+
+    /**
+     * @return lenders sorted by rate
+     */
+    List<Lender> getLenders() {
+        return lenders;
+    }
+
+    /**
+     * @return money available from the cheapest lenders up to and including the one at index
+     */
+    BigDecimal getCumulativeAvailable(int index) {
+        return cumulativeAvailable[index];
+    }
+
+    /**
+     * @return sum of available * rate of the cheapest lenders up to and including the one at index
+     */
+    BigDecimal getCumulativeWeighted(int index) {
+        return cumulativeWeighted[index];
+    }
+
+    /**
+     * Binary search over the running totals, O(log n) whatever the number of lenders needed.
+     *
+     * @return index of the first lender whose running total covers the amount, -1 if the book can not cover it
+     */
+    int indexCovering(BigDecimal amount) {
+        int low = 0;
+        int high = cumulativeAvailable.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeAvailable[middle].compareTo(amount) >= 0) {
+                found = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return found;
+    }
+
+    BigDecimal getTotalAvailable() {
+        return lenders.isEmpty() ? BigDecimal.ZERO : cumulativeAvailable[lenders.size() - 1];
+    }
+}
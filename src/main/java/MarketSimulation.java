@@ -0,0 +1,233 @@
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo stress test of a market: every scenario draws a stream of random borrowers down the same starting
+ * market, and reports how many were served, at which rates and how much money the lenders have left.
+ * <p>
+ * A borrower asks for one of the valid amounts, all equally likely, and reserves it as
+ * {@link Loan#reserve(ReservationBook, double)} does, at the same rate but without computing the repayments nobody
+ * reads: the money comes from the cheapest lenders with money left and the last lender only weights the money taken
+ * from it. A borrower the money left can not cover is rejected and takes nothing.
+ * <p>
+ * Scenarios are independent, so they run on a fork join pool without sharing anything mutable: each one draws down its
+ * own copy of the market, and each task splits its own random generator for the tasks it forks. The split tree only
+ * depends on the number of scenarios, so a seed gives the same results with any number of threads.
+ */
+class MarketSimulation {
+
+    private final Loan loan;
+    // Money of the starting market, every scenario draws down its own copy
+    private final ReservationBook market;
+    // Blended rates lie between the cheapest and the most expensive lender, in tenths of a percent
+    private final int maxRateTenths;
+
+    /**
+     * @throws IllegalArgumentException if a lender has more decimals than a {@link ReservationBook} keeps
+     */
+    MarketSimulation(MarketBook book) {
+        this(new Loan(), book);
+    }
+
+    /**
+     * @param loan blending the rates of the borrowers, at its precision
+     */
+    MarketSimulation(Loan loan, MarketBook book) {
+        this.loan = loan;
+        this.market = new ReservationBook(book);
+        this.maxRateTenths = book.size() == 0 ? 0 : tenths(book.getLenders().get(book.size() - 1).getRate());
+    }
+
+    /**
+     * @param scenarios           independent runs, each starting from the whole market
+     * @param borrowersPerScenario borrowers drawing down the market in each run
+     * @param seed                same seed, same results
+     */
+    Result run(ForkJoinPool pool, int scenarios, int borrowersPerScenario, long seed) {
+        if (scenarios <= 0 || borrowersPerScenario <= 0) {
+            throw new IllegalArgumentException(
+                    "Scenarios and borrowers must be positive: " + scenarios + ", " + borrowersPerScenario);
+        }
+        long start = System.nanoTime();
+        Result result = pool.invoke(new Scenarios(0, scenarios, borrowersPerScenario, new SplittableRandom(seed)));
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private Result runScenario(int borrowers, SplittableRandom random) {
+        Result result = new Result(maxRateTenths);
+        ReservationBook book = new ReservationBook(market);
+        for (int b = 0; b < borrowers; b++) {
+            int amount = Loan.MIN_AMOUNT + random.nextInt(Loan.AMOUNT_STEPS) * Loan.AMOUNT_STEP;
+            Optional<List<ReservationBook.Allocation>> allocations = book.reserve(amount * 100L);
+            if (!allocations.isPresent()) {
+                result.rejected++;
+                continue;
+            }
+            result.filled++;
+            result.filledPence += amount * 100L;
+            result.rateCounts[tenths(loan.reservedRate(allocations.get(), BigDecimal.valueOf(amount)))]++;
+        }
+        result.scenarios = 1;
+        result.remainingPence = book.getTotalRemainingPence();
+        result.minRemainingPence = result.remainingPence;
+        return result;
+    }
+
+    // Rounded down to a tenth of a percent as Main displays it
+    private static int tenths(BigDecimal rate) {
+        return rate.movePointRight(3).intValue();
+    }
+
+    private class Scenarios extends RecursiveTask<Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int borrowers;
+        private final SplittableRandom random;
+
+        Scenarios(int from, int to, int borrowers, SplittableRandom random) {
+            this.from = from;
+            this.to = to;
+            this.borrowers = borrowers;
+            this.random = random;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from == 1) {
+                return runScenario(borrowers, random);
+            }
+            int middle = (from + to) >>> 1;
+            Scenarios left = new Scenarios(from, middle, borrowers, random.split());
+            left.fork();
+            Result right = new Scenarios(middle, to, borrowers, random).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Totals of one or more scenarios.
+     */
+    static class Result {
+
+        private long scenarios;
+        private long filled;
+        private long rejected;
+        private long filledPence;
+        // Borrowers served per blended rate, in tenths of a percent
+        private final long[] rateCounts;
+        // Money left at the end of every scenario, added up
+        private long remainingPence;
+        private long minRemainingPence;
+        private long elapsedNanos;
+
+        private Result(int maxRateTenths) {
+            this.rateCounts = new long[maxRateTenths + 1];
+        }
+
+        private Result merge(Result other) {
+            scenarios += other.scenarios;
+            filled += other.filled;
+            rejected += other.rejected;
+            filledPence += other.filledPence;
+            for (int i = 0; i < rateCounts.length; i++) {
+                rateCounts[i] += other.rateCounts[i];
+            }
+            remainingPence += other.remainingPence;
+            minRemainingPence = Math.min(minRemainingPence, other.minRemainingPence);
+            return this;
+        }
+
+        long getScenarios() {
+            return scenarios;
+        }
+
+        long getFilled() {
+            return filled;
+        }
+
+        long getRejected() {
+            return rejected;
+        }
+
+        long getFilledPence() {
+            return filledPence;
+        }
+
+        /**
+         * @return share of the borrowers served, 0 to 1
+         */
+        double getFillRatio() {
+            return filled + rejected == 0 ? 0 : (double) filled / (filled + rejected);
+        }
+
+        /**
+         * @return rate below or at which that percentage of the served borrowers were quoted, in tenths of a percent,
+         * -1 if nobody was served
+         */
+        int getRatePercentile(double percentile) {
+            long rank = (long) Math.ceil(filled * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < rateCounts.length; i++) {
+                seen += rateCounts[i];
+                if (seen > 0 && seen >= rank) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return mean rate of the served borrowers in tenths of a percent, each rate rounded down
+         */
+        double getMeanRateTenths() {
+            long sum = 0;
+            for (int i = 0; i < rateCounts.length; i++) {
+                sum += i * rateCounts[i];
+            }
+            return filled == 0 ? 0 : (double) sum / filled;
+        }
+
+        /**
+         * @return money left at the end of a scenario, on average
+         */
+        double getMeanRemainingPence() {
+            return scenarios == 0 ? 0 : (double) remainingPence / scenarios;
+        }
+
+        long getMinRemainingPence() {
+            return minRemainingPence;
+        }
+
+        /**
+         * @return borrowers simulated per second, served or rejected
+         */
+        double getQuotesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (filled + rejected) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Scenarios: %d, filled: %d, rejected: %d, fill ratio: %.3f%n"
+                            + "Rate p50: %s, p90: %s, p99: %s, mean: %.2f%%%n"
+                            + "Remaining per scenario: £%.2f mean, £%.2f min%n"
+                            + "%.1f s, %.0f quotes/s",
+                    scenarios, filled, rejected, getFillRatio(),
+                    percent(getRatePercentile(50)), percent(getRatePercentile(90)), percent(getRatePercentile(99)),
+                    getMeanRateTenths() / 10, getMeanRemainingPence() / 100, minRemainingPence / 100.0,
+                    elapsedNanos / 1e9, getQuotesPerSecond());
+        }
+
+        // n/a when nobody was served
+        private static String percent(int tenths) {
+            return tenths < 0 ? "n/a" : String.format("%.1f%%", tenths / 10.0);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of a market CSV file, loaded by memory mapping it without any parsing.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header   magic, version, CSV size, CSV last modified, lenders, name bytes, CRC32 of everything after the header
+ * columns  rate in millionths, available in pence, running total of available, running sum of available * rate,
+ *          one long per lender each, lenders sorted by rate as in {@link MarketBook}
+ * names    offset of every name plus the end offset, one int each, then the UTF-8 bytes of all names
+ * </pre>
+ * The snapshot of market.csv is market.csv.snapshot, it is stale once the CSV file size or last modified time
+ * changes.
+ */
+class MarketSnapshot {
+
+    static final String EXTENSION = ".snapshot";
+    private static final int MAGIC = 0x414D534E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 8;
+    private static final int COLUMNS = 4;
+
+    private final ByteBuffer buffer;
+    private final int lenders;
+    private final int namesStart;
+
+    private MarketSnapshot(ByteBuffer buffer, int lenders) {
+        this.buffer = buffer;
+        this.lenders = lenders;
+        this.namesStart = HEADER_SIZE + COLUMNS * 8 * lenders + 4 * (lenders + 1);
+    }
+
+    /**
+     * @return file where the snapshot of the CSV file is written
+     */
+    static File snapshotFile(String csvPath) {
+        return new File(csvPath + EXTENSION);
+    }
+
+    /**
+     * Writes the snapshot of a CSV file next to it.
+     *
+     * @param csvPath to CSV file
+     * @param csv     reader of the file
+     * @return snapshot file
+     * @throws IOException if reading the CSV file or writing the snapshot
+     */
+    static File compile(String csvPath, CSV csv) throws IOException {
+        File csvFile = new File(csvPath);
+        long csvSize = csvFile.length();
+        long csvLastModified = csvFile.lastModified();
+        MarketBook book = MarketBook.load(csvPath, csv);
+        FixedPointBook fixedPointBook = new FixedPointBook(book);
+
+        byte[][] names = new byte[book.size()][];
+        int nameBytes = 0;
+        for (int i = 0; i < book.size(); i++) {
+            names[i] = book.getLenders().get(i).getName().getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[i].length;
+        }
+        long size = HEADER_SIZE + COLUMNS * 8L * book.size() + 4L * (book.size() + 1) + nameBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Market is too big for a snapshot: " + csvPath);
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.position(HEADER_SIZE);
+        for (Lender lender : book.getLenders()) {
+            out.putLong(FixedPointBook.toLong(lender.getRate(), FixedPointBook.RATE_SCALE, "rate"));
+        }
+        for (Lender lender : book.getLenders()) {
+            out.putLong(FixedPointBook.toLong(lender.getAvailable(), FixedPointBook.PENCE_SCALE, "available"));
+        }
+        for (int i = 0; i < book.size(); i++) {
+            out.putLong(fixedPointBook.getCumulativePence(i));
+        }
+        for (int i = 0; i < book.size(); i++) {
+            out.putLong(fixedPointBook.getCumulativeWeighted(i));
+        }
+        int offset = 0;
+        for (byte[] name : names) {
+            out.putInt(offset);
+            offset += name.length;
+        }
+        out.putInt(offset);
+        for (byte[] name : names) {
+            out.put(name);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), HEADER_SIZE, out.capacity() - HEADER_SIZE);
+        out.position(0);
+        out.putInt(MAGIC).putInt(VERSION).putLong(csvSize).putLong(csvLastModified).putInt(book.size())
+                .putInt(nameBytes).putLong(crc.getValue());
+        out.position(0);
+
+        File snapshotFile = snapshotFile(csvPath);
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        return snapshotFile;
+    }
+
+    /**
+     * @param csvPath to CSV file
+     * @return snapshot of the CSV file, empty when there is none, it is stale or it is not valid
+     * @throws IOException if reading the snapshot
+     */
+    static Optional<MarketSnapshot> load(String csvPath) throws IOException {
+        File csvFile = new File(csvPath);
+        File snapshotFile = snapshotFile(csvPath);
+        if (!csvFile.isFile() || !snapshotFile.isFile() || snapshotFile.length() < HEADER_SIZE) {
+            return Optional.empty();
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != csvFile.length()
+                || buffer.getLong(16) != csvFile.lastModified()) {
+            return Optional.empty();
+        }
+        int lenders = buffer.getInt(24);
+        int nameBytes = buffer.getInt(28);
+        if (lenders < 0 || nameBytes < 0
+                || buffer.capacity() != HEADER_SIZE + COLUMNS * 8L * lenders + 4L * (lenders + 1) + nameBytes) {
+            return Optional.empty();
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (crc.getValue() != buffer.getLong(32)) {
+            return Optional.empty();
+        }
+        return Optional.of(new MarketSnapshot(buffer, lenders));
+    }
+
+    int size() {
+        return lenders;
+    }
+
+    /**
+     * @return quote engine reading the running totals straight from the snapshot
+     */
+    FixedPointBook getFixedPointBook() {
+        return new FixedPointBook(column(2), column(3));
+    }
+
+    BigDecimal getRate(int index) {
+        return BigDecimal.valueOf(column(0).get(index), FixedPointBook.RATE_SCALE);
+    }
+
+    BigDecimal getAvailable(int index) {
+        return BigDecimal.valueOf(column(1).get(index), FixedPointBook.PENCE_SCALE);
+    }
+
+    String getName(int index) {
+        int offsets = namesStart - 4 * (lenders + 1);
+        int start = buffer.getInt(offsets + 4 * index);
+        int end = buffer.getInt(offsets + 4 * (index + 1));
+        byte[] name = new byte[end - start];
+        ByteBuffer names = buffer.duplicate();
+        names.position(namesStart + start);
+        names.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private LongBuffer column(int column) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(HEADER_SIZE + column * 8 * lenders);
+        slice.limit(HEADER_SIZE + (column + 1) * 8 * lenders);
+        return slice.slice().asLongBuffer();
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Tails an append-only delta file and applies every new line to a {@link LiveMarket}, so quotes reflect the latest
+ * market without reading the whole CSV file again.
+ * <p>
+ * One change per line:
+ * <pre>
+ * ADD,name,rate,available
+ * REMOVE,name
+ * RATE,name,rate
+ * AVAILABLE,name,available
+ * </pre>
+ * A line is only applied once its line break has been written. A delta file that shrinks or is replaced by another
+ * file is read again from its start.
+ * <p>
+ * Skipped lines and watch failures go to the listener of problems, never to the standard output.
+ */
+class MarketWatcher implements Closeable {
+
+    // Bytes of the delta file read at once
+    static final int READ_SIZE = 64 * 1024;
+
+    private final LiveMarket market;
+    private final Path deltaFile;
+    private final WatchService watchService;
+    private final Consumer<String> problems;
+    // Bytes of the delta file already applied
+    private long position;
+    // Identity of the delta file read, null where the file system has none
+    private Object fileKey;
+
+    /**
+     * Same as {@link #MarketWatcher(LiveMarket, Path, Consumer)} reporting problems on the standard error.
+     */
+    MarketWatcher(LiveMarket market, Path deltaFile) throws IOException {
+        this(market, deltaFile, System.err::println);
+    }
+
+    /**
+     * Applies the lines already in the delta file, if it exists, then watches it.
+     *
+     * @param problems told of the lines skipped, of a delta file read again and of a watch that stopped
+     * @throws IOException if reading the delta file or watching its directory
+     */
+    MarketWatcher(LiveMarket market, Path deltaFile, Consumer<String> problems) throws IOException {
+        this.market = market;
+        this.deltaFile = deltaFile.toAbsolutePath();
+        this.problems = problems;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            this.deltaFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            applyNewDeltas();
+        } catch (IOException | RuntimeException e) {
+            // Not returned, so nobody else closes it
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies new lines of the delta file each time it changes, until {@link #close()}.
+     */
+    void watch() throws IOException {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || deltaFile.getFileName().equals(event.context());
+                }
+                if (changed) {
+                    applyAll();
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed, stop watching
+        }
+    }
+
+    // Keeps applying after an invalid line
+    private void applyAll() throws IOException {
+        while (true) {
+            try {
+                applyNewDeltas();
+                return;
+            } catch (IllegalArgumentException e) {
+                problems.accept("Change skipped: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #watch()} on a daemon thread.
+     */
+    Thread start() {
+        Thread thread = new Thread(() -> {
+            try {
+                watch();
+            } catch (IOException e) {
+                problems.accept("Stopped watching " + deltaFile + ": " + e.getMessage());
+            }
+        }, "market-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return number of changes applied
+     * @throws IOException              if reading the delta file
+     * @throws IllegalArgumentException if a line is not valid, the lines before it are applied
+     */
+    synchronized int applyNewDeltas() throws IOException {
+        if (!deltaFile.toFile().isFile()) {
+            return 0;
+        }
+        Object key = Files.readAttributes(deltaFile, BasicFileAttributes.class).fileKey();
+        try (RandomAccessFile in = new RandomAccessFile(deltaFile.toFile(), "r")) {
+            long length = in.length();
+            if (length < position || (key != null && !key.equals(fileKey) && position > 0)) {
+                problems.accept("Delta file " + deltaFile + " was truncated or replaced, reading it from its start");
+                position = 0;
+            }
+            fileKey = key;
+            if (length <= position) {
+                return 0;
+            }
+            in.seek(position);
+            return applyLines(in, length);
+        }
+    }
+
+    // Reads up to the length in chunks of READ_SIZE, a line split by two chunks is kept until its line break
+    private int applyLines(RandomAccessFile in, long length) throws IOException {
+        byte[] chunk = new byte[(int) Math.min(READ_SIZE, length - position)];
+        ByteArrayOutputStream partLine = new ByteArrayOutputStream();
+        long chunkStart = position;
+        int applied = 0;
+        while (chunkStart < length) {
+            int read = (int) Math.min(chunk.length, length - chunkStart);
+            in.readFully(chunk, 0, read);
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] == '\n') {
+                    String line;
+                    if (partLine.size() == 0) {
+                        line = new String(chunk, lineStart, i - lineStart, StandardCharsets.UTF_8).trim();
+                    } else {
+                        partLine.write(chunk, lineStart, i - lineStart);
+                        line = new String(partLine.toByteArray(), StandardCharsets.UTF_8).trim();
+                        partLine.reset();
+                    }
+                    lineStart = i + 1;
+                    // An invalid line is skipped the next time
+                    position = chunkStart + lineStart;
+                    if (!line.isEmpty()) {
+                        apply(line);
+                        applied++;
+                    }
+                }
+            }
+            partLine.write(chunk, lineStart, read - lineStart);
+            chunkStart += read;
+        }
+        return applied;
+    }
+
+    private void apply(String line) {
+        List<String> fields = Arrays.asList(line.split(","));
+        switch (fields.get(0)) {
+            case "ADD":
+                checkFields(fields, 4);
+                market.add(new Lender(fields.get(1), positive(fields, 2), positive(fields, 3)));
+                break;
+            case "REMOVE":
+                checkFields(fields, 2);
+                market.remove(fields.get(1));
+                break;
+            case "RATE":
+                checkFields(fields, 3);
+                market.changeRate(fields.get(1), positive(fields, 2));
+                break;
+            case "AVAILABLE":
+                checkFields(fields, 3);
+                market.changeAvailable(fields.get(1), positive(fields, 2));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown change in " + deltaFile + ": " + fields);
+        }
+    }
+
+    private void checkFields(List<String> fields, int expected) {
+        if (fields.size() != expected) {
+            throw new IllegalArgumentException(
+                    "Content of " + deltaFile + " is incorrect, expected " + expected + " words separated by ,: "
+                            + fields);
+        }
+    }
+
+    private static BigDecimal positive(List<String> fields, int index) {
+        BigDecimal value = new BigDecimal(fields.get(index));
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("value of " + fields + " must be positive number");
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
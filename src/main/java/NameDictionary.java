@@ -0,0 +1,127 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lender names stored once each as UTF-8 bytes in a direct buffer, known by an id.
+ * <p>
+ * The ids of the names are found through an open addressing table of primitive ints hashed on the bytes, so the
+ * dictionary is a handful of objects whatever the number of names.
+ */
+class NameDictionary {
+
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(1024);
+    // Name id starts at offsets[id] and ends at offsets[id + 1]
+    private int[] offsets = new int[65];
+    private int size;
+    // Id + 1 of the name in each slot, 0 for an empty slot, at most half full
+    private int[] table = new int[128];
+
+    /**
+     * @return id of the name, the same for equal names
+     */
+    int intern(String name) {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int hash = Arrays.hashCode(utf8);
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                id = add(utf8);
+                table[slot] = id + 1;
+                if (2 * size > table.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (equals(id, utf8)) {
+                return id;
+            }
+        }
+    }
+
+    String getName(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No name with id " + id);
+        }
+        byte[] name = new byte[offsets[id + 1] - offsets[id]];
+        ByteBuffer slice = bytes.duplicate();
+        slice.position(offsets[id]);
+        slice.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return distinct names
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return UTF-8 bytes of all the names
+     */
+    int getByteSize() {
+        return offsets[size];
+    }
+
+    private int add(byte[] utf8) {
+        int end = offsets[size];
+        if (bytes.capacity() - end < utf8.length) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(2 * bytes.capacity(), end + utf8.length));
+            ByteBuffer used = bytes.duplicate();
+            used.position(0).limit(end);
+            grown.put(used);
+            bytes = grown;
+        }
+        ByteBuffer slice = bytes.duplicate();
+        slice.position(end);
+        slice.put(utf8);
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+        }
+        offsets[size + 1] = end + utf8.length;
+        return size++;
+    }
+
+    private boolean equals(int id, byte[] utf8) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != utf8.length) {
+            return false;
+        }
+        for (int i = 0; i < utf8.length; i++) {
+            if (bytes.get(start + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] grown = new int[2 * table.length];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hash(id)) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        table = grown;
+    }
+
+    // Same as Arrays.hashCode of the bytes of the name
+    private int hash(int id) {
+        int hash = 1;
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            hash = 31 * hash + bytes.get(i);
+        }
+        return hash;
+    }
+
+    // Spreads the low bits, names often differ only in their last characters
+    private static int mix(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ mixed >>> 16;
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * {@link MappedCSV} reading the file in chunks on a fork-join pool.
+ * <p>
+ * The chunks are byte ranges starting at line starts. At most {@link #CHUNKS_PER_THREAD} chunks per thread are read
+ * ahead, and the lenders of each chunk are given to the consumer in file order as soon as the chunks before it were,
+ * so memory depends on the threads and not on the size of the file. When several lines are invalid, the error of the
+ * first one is thrown, as the sequential readers do.
+ */
+class ParallelCSV extends MappedCSV {
+
+    // Bytes of a chunk, smaller files are not worth splitting
+    private static final long CHUNK_SIZE = 1024 * 1024;
+    // Chunks read ahead per thread, so a slow chunk does not leave the other threads idle
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    ParallelCSV() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    ParallelCSV(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * It is required to process all lenders.
+     *
+     * @param filePath to CSV file
+     * @return List of lenders in CSV file
+     * @throws IOException if reading the file
+     */
+    @Override
+    List<Lender> extractLenders(String filePath) throws IOException {
+        List<Lender> result = new ArrayList<>();
+        readLenders(filePath, result::add);
+        return result;
+    }
+
+    /**
+     * The chunks are parsed in parallel, the consumer is given their lenders in file order from this thread.
+     *
+     * @param filePath to CSV file
+     * @param consumer of every lender
+     * @throws IOException if reading the file
+     */
+    @Override
+    void readLenders(String filePath, Consumer<Lender> consumer) throws IOException {
+        if (filePath == null || filePath.isEmpty()) {
+            throw new IllegalArgumentException("filePath must not be empty or null");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IllegalArgumentException("File is empty: " + filePath);
+            }
+            long next = headerLength(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, CHUNK_SIZE)),
+                    filePath);
+            int readAhead = pool.getParallelism() * CHUNKS_PER_THREAD;
+            Deque<ChunkAction> inFlight = new ArrayDeque<>(readAhead);
+            try {
+                while (next < size || !inFlight.isEmpty()) {
+                    while (next < size && inFlight.size() < readAhead) {
+                        long end = next + CHUNK_SIZE >= size ? size : nextLineStart(channel, next + CHUNK_SIZE, size);
+                        // A line too long ends the file, the chunk rejects it
+                        end = end < 0 ? size : end;
+                        ChunkAction chunk = new ChunkAction(channel, next, end, filePath);
+                        pool.execute(chunk);
+                        inFlight.add(chunk);
+                        next = end;
+                    }
+                    ChunkAction chunk = inFlight.poll();
+                    chunk.quietlyJoin();
+                    chunk.rethrow();
+                    chunk.lenders.forEach(consumer);
+                }
+            } finally {
+                // Chunks after an error, or after a consumer that failed
+                for (ChunkAction chunk : inFlight) {
+                    chunk.cancel(false);
+                    chunk.quietlyJoin();
+                }
+            }
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        // The line break of a valid line is at most MAX_LINE_LENGTH bytes away
+        long from = position - 1;
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from,
+                Math.min(size - from, MAX_LINE_LENGTH + 2));
+        int lineEnd = lineEnd(buffer, 0, buffer.limit());
+        if (lineEnd < 0) {
+            // End of file, or a line too long that the chunk before will reject
+            return from + buffer.limit() == size ? size : -1;
+        }
+        return from + lineEnd + 1;
+    }
+
+    private static class ChunkAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final String filePath;
+        private final List<Lender> lenders = new ArrayList<>();
+        private IOException ioError;
+        // RuntimeException or Error, which quietlyJoin would swallow
+        private Throwable error;
+
+        ChunkAction(FileChannel channel, long from, long to, String filePath) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.filePath = filePath;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                readLenders(channel, from, to, filePath, lenders::add);
+            } catch (IOException e) {
+                ioError = e;
+            } catch (RuntimeException | Error e) {
+                error = e;
+            }
+        }
+
+        // Errors thrown as they were, fork-join would wrap them in copies
+        void rethrow() throws IOException {
+            if (ioError != null) {
+                throw ioError;
+            }
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+            if (error != null) {
+                throw (RuntimeException) error;
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Bounded least recently used cache of the quotes of market files, shared by concurrent quotes, keyed by the
+ * {@link MarketVersion} of the file, the amount, the term and the precision of the loan.
+ * <p>
+ * Every quote compares the size and the last modified time of the file with the ones of its current version, the file
+ * is hashed again only when they changed, and the quotes of the previous version are dropped. A file rewritten with
+ * the same size within the resolution of its last modified time is not noticed.
+ * <p>
+ * The quotes are computed outside the lock, two threads missing the same key at once may both compute it.
+ */
+class QuoteCache {
+
+    static final int DEFAULT_SIZE = 4096;
+    private static final int HASH_READ_SIZE = 1024 * 1024;
+
+    private final CSV csv;
+    private final int maxSize;
+    private final Map<Key, Optional<BorrowerInfo>> quotes;
+    // Current version of every file quoted, by absolute path
+    private final ConcurrentMap<Path, MarketVersion> versions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param csv reader of the files on a miss
+     */
+    QuoteCache(CSV csv, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.csv = csv;
+        this.maxSize = maxSize;
+        this.quotes = new LinkedHashMap<Key, Optional<BorrowerInfo>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Optional<BorrowerInfo>> eldest) {
+                if (size() > QuoteCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Same as {@link Loan#calculate(String, double, CSV)}, computed once per version of the file, amount, term and
+     * precision of the loan. Files that can not be read are not cached.
+     *
+     * @return borrower info when possible
+     */
+    Optional<BorrowerInfo> calculate(Loan loan, String filePath, double requestedAmount) {
+        Loan.validate(requestedAmount);
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        MarketVersion version;
+        try {
+            version = version(path);
+        } catch (IOException e) {
+            misses.increment();
+            return loan.calculate(filePath, requestedAmount, csv);
+        }
+        Key key = new Key(version, requestedAmount, loan.getTermMonths(), loan.getMathContext());
+        Optional<BorrowerInfo> borrowerInfo;
+        synchronized (quotes) {
+            borrowerInfo = quotes.get(key);
+        }
+        if (borrowerInfo != null) {
+            hits.increment();
+            return borrowerInfo;
+        }
+        misses.increment();
+        try {
+            borrowerInfo = quote(loan, filePath, requestedAmount);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        // A file that changed while it was read is quoted again by the next call
+        if (version.equals(versions.get(path)) && unchanged(version, path)) {
+            synchronized (quotes) {
+                quotes.put(key, borrowerInfo);
+            }
+        }
+        return borrowerInfo;
+    }
+
+    // Same as Loan.calculate(String, double, CSV), reporting the file that can not be read
+    private Optional<BorrowerInfo> quote(Loan loan, String filePath, double requestedAmount) throws IOException {
+        CheapestLenders cheapest = csv.extractCheapestLenders(filePath, new BigDecimal(Loan.MAX_AMOUNT));
+        return loan.calculate(new MarketBook(cheapest.getLenders()), requestedAmount);
+    }
+
+    /**
+     * @return version of the file, hashed again only if its size or its last modified time changed
+     * @throws IOException if reading the file
+     */
+    MarketVersion version(Path path) throws IOException {
+        MarketVersion current = versions.get(path);
+        if (current != null && current.sameFile(path)) {
+            return current;
+        }
+        MarketVersion version = MarketVersion.of(path);
+        if (current == null ? versions.putIfAbsent(path, version) != null : !versions.replace(path, current, version)) {
+            // Another quote found the change first
+            return version(path);
+        }
+        if (current != null) {
+            invalidate(current);
+        }
+        return version;
+    }
+
+    private static boolean unchanged(MarketVersion version, Path path) {
+        try {
+            return version.sameFile(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void invalidate(MarketVersion version) {
+        synchronized (quotes) {
+            int before = quotes.size();
+            quotes.keySet().removeIf(key -> key.version.equals(version));
+            invalidations.add(before - quotes.size());
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits over quotes, 0 before any quote
+     */
+    double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return quotes dropped to stay within the size
+     */
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return quotes dropped because their market changed
+     */
+    long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    int size() {
+        synchronized (quotes) {
+            return quotes.size();
+        }
+    }
+
+    /**
+     * Size, last modified time and CRC32 of the content of a market file.
+     */
+    static class MarketVersion {
+
+        private final long size;
+        private final long lastModified;
+        private final long hash;
+
+        private MarketVersion(long size, long lastModified, long hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /**
+         * @throws IOException if reading the file
+         */
+        static MarketVersion of(Path path) throws IOException {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_READ_SIZE);
+                for (int read = channel.read(buffer); read >= 0; read = channel.read(buffer)) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                    size += read;
+                }
+            }
+            return new MarketVersion(size, lastModified, crc.getValue());
+        }
+
+        private boolean sameFile(Path path) throws IOException {
+            return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        long getHash() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof MarketVersion))
+                return false;
+            MarketVersion version = (MarketVersion) o;
+            return size == version.size && lastModified == version.lastModified && hash == version.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified, hash);
+        }
+
+        @Override
+        public String toString() {
+            return size + " bytes, modified " + lastModified + ", CRC32 " + Long.toHexString(hash);
+        }
+    }
+
+    private static class Key {
+
+        private final MarketVersion version;
+        private final double requestedAmount;
+        private final int termMonths;
+        private final MathContext mathContext;
+
+        Key(MarketVersion version, double requestedAmount, int termMonths, MathContext mathContext) {
+            this.version = version;
+            this.requestedAmount = requestedAmount;
+            this.termMonths = termMonths;
+            this.mathContext = mathContext;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return version.equals(key.version) && Double.compare(requestedAmount, key.requestedAmount) == 0
+                    && termMonths == key.termMonths && mathContext.equals(key.mathContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, requestedAmount, termMonths, mathContext);
+        }
+    }
+}
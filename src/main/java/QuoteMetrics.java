@@ -0,0 +1,263 @@
+import java.io.Closeable;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Latency of every stage of a quote, and counters of the quotes served and rejected, shared by any number of threads.
+ * <p>
+ * When disabled, {@link #start()} and {@link #record(Stage, long)} only test a final field, so the instrumented code
+ * costs nothing measurable. When enabled every stage is also a JDK Flight Recorder event, amortization.QuoteStage,
+ * if the JVM has Flight Recorder.
+ */
+class QuoteMetrics {
+
+    /**
+     * Instrumentation turned off, the default of a {@link Loan}.
+     */
+    static final QuoteMetrics DISABLED = new QuoteMetrics(false);
+
+    enum Stage {
+        // Reading the lenders of the CSV file
+        READ,
+        // Sorting them by rate
+        SORT,
+        // Finding the lenders of the quote and weighting their rates
+        RATE,
+        // Monthly repayment of the rate
+        ANNUITY,
+        // Whole quote, from the request to the borrower info or the rejection
+        QUOTE
+    }
+
+    private final boolean enabled;
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram lendersScanned = new LatencyHistogram();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final FlightRecorderEvents events;
+
+    QuoteMetrics() {
+        this(true);
+    }
+
+    private QuoteMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+        this.events = enabled ? FlightRecorderEvents.create() : null;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return start time of a stage, to give back to {@link #record(Stage, long)}
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void record(Stage stage, long start) {
+        if (enabled) {
+            long nanos = System.nanoTime() - start;
+            stages[stage.ordinal()].record(nanos);
+            if (events != null) {
+                events.commit(stage, nanos);
+            }
+        }
+    }
+
+    /**
+     * Counts a quote given to a borrower, and the lenders whose money it needed.
+     */
+    void served(long start, int lenders) {
+        if (enabled) {
+            record(Stage.QUOTE, start);
+            served.increment();
+            lendersScanned.record(lenders);
+        }
+    }
+
+    /**
+     * Counts a quote the market could not cover.
+     */
+    void rejected(long start) {
+        if (enabled) {
+            record(Stage.QUOTE, start);
+            rejected.increment();
+        }
+    }
+
+    LatencyHistogram getHistogram(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    LatencyHistogram getLendersScanned() {
+        return lendersScanned;
+    }
+
+    long getServed() {
+        return served.sum();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return one line per stage with its count and latency percentiles in microseconds, then the counters
+     */
+    String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            text.append(String.format(Locale.ROOT, "%-8s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                    stage, histogram.getCount(), histogram.getMean() / 1e3, histogram.getPercentile(50) / 1e3,
+                    histogram.getPercentile(99) / 1e3, histogram.getPercentile(100) / 1e3));
+        }
+        text.append(String.format(Locale.ROOT, "served=%d rejected=%d lendersScanned p50=%d p99=%d%n",
+                getServed(), getRejected(), lendersScanned.getPercentile(50), lendersScanned.getPercentile(99)));
+        return text.toString();
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder("{\"stages\":{");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(stage.name()).append("\":{\"count\":").append(histogram.getCount())
+                    .append(",\"meanNanos\":").append((long) histogram.getMean())
+                    .append(",\"p50Nanos\":").append(histogram.getPercentile(50))
+                    .append(",\"p99Nanos\":").append(histogram.getPercentile(99))
+                    .append(",\"maxNanos\":").append(histogram.getPercentile(100)).append('}');
+        }
+        return json.append("},\"served\":").append(getServed())
+                .append(",\"rejected\":").append(getRejected())
+                .append(",\"lendersScanned\":{\"p50\":").append(lendersScanned.getPercentile(50))
+                .append(",\"p99\":").append(lendersScanned.getPercentile(99)).append("}}").toString();
+    }
+
+    /**
+     * Gives {@link #toText()} or {@link #toJson()} to the consumer every period, from a daemon thread.
+     *
+     * @return closing it stops the dumps
+     */
+    Closeable dumpEvery(long period, TimeUnit unit, boolean json, Consumer<String> out) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quote-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> out.accept(json ? toJson() : toText()), period, period, unit);
+        return scheduler::shutdownNow;
+    }
+
+    /**
+     * Flight Recorder events defined at runtime with jdk.jfr.EventFactory, since the build targets Java 8 where
+     * jdk.jfr does not exist.
+     * <p>
+     * The methods of the events are looked up once, as method handles bound to the factory and its event type. While
+     * no recording has the event enabled, a stage only asks the event type, without creating an event or boxing its
+     * duration.
+     */
+    private static class FlightRecorderEvents {
+
+        private static final MethodType SET_TYPE =
+                MethodType.methodType(void.class, Object.class, int.class, Object.class);
+
+        // () -> boolean, whether a recording has the event type enabled
+        private final MethodHandle isEnabled;
+        // () -> Object
+        private final MethodHandle newEvent;
+        // (Object event, int field, Object value) -> void
+        private final MethodHandle set;
+        // (Object event) -> void
+        private final MethodHandle commit;
+
+        private FlightRecorderEvents(MethodHandle isEnabled, MethodHandle newEvent, MethodHandle set,
+                                     MethodHandle commit) {
+            this.isEnabled = isEnabled;
+            this.newEvent = newEvent;
+            this.set = set;
+            this.commit = commit;
+        }
+
+        /**
+         * @return events, null when the JVM has no Flight Recorder
+         */
+        static FlightRecorderEvents create() {
+            try {
+                Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+                Class<?> eventType = Class.forName("jdk.jfr.EventType");
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+                Constructor<?> value = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+
+                List<Object> eventAnnotations = Arrays.asList(
+                        annotation.newInstance(annotationClass("jdk.jfr.Name"), "amortization.QuoteStage"),
+                        annotation.newInstance(annotationClass("jdk.jfr.Label"), "Quote Stage"),
+                        annotation.newInstance(annotationClass("jdk.jfr.Category"), new String[] {"Amortization"}));
+                List<Object> fields = Arrays.asList(
+                        value.newInstance(String.class, "stage", Collections.singletonList(
+                                annotation.newInstance(annotationClass("jdk.jfr.Label"), "Stage"))),
+                        value.newInstance(long.class, "stageDuration", new ArrayList<>(Arrays.asList(
+                                annotation.newInstance(annotationClass("jdk.jfr.Label"), "Stage Duration"),
+                                annotation.newInstance(annotationClass("jdk.jfr.Timespan"), "NANOSECONDS")))));
+                Object factory = eventFactory.getMethod("create", List.class, List.class)
+                        .invoke(null, eventAnnotations, fields);
+                Object type = eventFactory.getMethod("getEventType").invoke(factory);
+
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                return new FlightRecorderEvents(
+                        lookup.unreflect(eventType.getMethod("isEnabled")).bindTo(type)
+                                .asType(MethodType.methodType(boolean.class)),
+                        lookup.unreflect(eventFactory.getMethod("newEvent")).bindTo(factory)
+                                .asType(MethodType.methodType(Object.class)),
+                        lookup.unreflect(event.getMethod("set", int.class, Object.class)).asType(SET_TYPE),
+                        lookup.unreflect(event.getMethod("commit"))
+                                .asType(MethodType.methodType(void.class, Object.class)));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<? extends Annotation> annotationClass(String name) throws ClassNotFoundException {
+            return (Class<? extends Annotation>) Class.forName(name);
+        }
+
+        void commit(Stage stage, long nanos) {
+            try {
+                // Not recording
+                if (!(boolean) isEnabled.invokeExact()) {
+                    return;
+                }
+                Object event = (Object) newEvent.invokeExact();
+                set.invokeExact(event, 0, (Object) stage.name());
+                set.invokeExact(event, 1, (Object) nanos);
+                commit.invokeExact(event);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Flight Recorder event failed", e);
+            }
+        }
+    }
+}
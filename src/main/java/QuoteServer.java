@@ -0,0 +1,190 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long running quote service keeping the market in memory, so a quote costs neither a JVM start nor a read of the
+ * CSV file.
+ * <p>
+ * {@code GET /quote?amount=1000&term=48} answers 200 with the fields of {@link BorrowerInfo} and the term as JSON, the
+ * term in months being optional, 400 when the amount or the term is not valid, 404 when the market can not cover it
+ * and 405 for any other method. {@code GET /metrics} answers the {@link QuoteMetrics} of the loan as JSON, when they
+ * are enabled.
+ */
+class QuoteServer implements Closeable {
+
+    static final String QUOTE_PATH = "/quote";
+    static final String METRICS_PATH = "/metrics";
+    private static final String AMOUNT_PARAMETER = "amount";
+    private static final String TERM_PARAMETER = "term";
+
+    static {
+        // Headers and body are written separately, with Nagle every kept alive request waits for a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Loan loan;
+    private final AnnuityTable table;
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    /**
+     * Starts answering right away.
+     *
+     * @param address port 0 picks a free port
+     * @param workers threads handling requests, 0 for a virtual thread per request when the JDK has them, or one
+     *                thread per processor otherwise
+     * @throws IOException if the address can not be bound
+     */
+    QuoteServer(Loan loan, FixedPointBook book, InetSocketAddress address, int workers) throws IOException {
+        this.loan = loan;
+        this.table = loan.tabulate(book, Loan.TERMS_MONTHS);
+        this.server = HttpServer.create(address, 0);
+        this.workers = workerPool(workers);
+        server.createContext(QUOTE_PATH, this::handle);
+        if (loan.getMetrics().isEnabled()) {
+            server.createContext(METRICS_PATH, exchange -> {
+                try {
+                    respond(exchange, 200, loan.getMetrics().toJson());
+                } finally {
+                    exchange.close();
+                }
+            });
+        }
+        server.setExecutor(this.workers);
+        server.start();
+    }
+
+    /**
+     * @return address the server listens to, with the port picked when it was 0
+     */
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    static ExecutorService workerPool(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("workers should be 0 or more: " + workers);
+        }
+        if (workers > 0) {
+            return Executors.newFixedThreadPool(workers);
+        }
+        try {
+            // JDK 21 and later, looked up so the service still runs on Java 8
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            String amount = parameter(exchange.getRequestURI().getRawQuery(), AMOUNT_PARAMETER);
+            if (amount == null) {
+                respond(exchange, 400, error("Missing parameter " + AMOUNT_PARAMETER));
+                return;
+            }
+            String term = parameter(exchange.getRequestURI().getRawQuery(), TERM_PARAMETER);
+            Loan termLoan;
+            Optional<BorrowerInfo> borrowerInfo;
+            try {
+                termLoan = term == null ? loan : loan.withTerm(Integer.parseInt(term));
+                borrowerInfo = termLoan.calculate(table, Double.valueOf(amount));
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, error("The amount and the term must be numbers"));
+                return;
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            if (borrowerInfo.isPresent()) {
+                respond(exchange, 200, toJson(borrowerInfo.get(), termLoan.getTermMonths()));
+            } else {
+                respond(exchange, 404, error("It is not possible to provide a quote at that time."));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return decoded value of the first parameter with that name, null if there is none
+     */
+    static String parameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (name.equals(key)) {
+                try {
+                    return URLDecoder.decode(equals < 0 ? "" : pair.substring(equals + 1), "UTF-8");
+                } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                    return "";
+                }
+            }
+        }
+        return null;
+    }
+
+    static String toJson(BorrowerInfo borrowerInfo, int termMonths) {
+        return "{\"requestedAmount\":" + json(borrowerInfo.getRequestedAmount())
+                + ",\"termMonths\":" + termMonths
+                + ",\"rate\":" + json(borrowerInfo.getRate())
+                + ",\"monthlyRepayment\":" + json(borrowerInfo.getMonthlyRepayment())
+                + ",\"totalRepayment\":" + json(borrowerInfo.getTotalRepayment()) + "}";
+    }
+
+    private static String json(BigDecimal value) {
+        return value.toPlainString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Stops accepting requests, lets the ones in progress finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
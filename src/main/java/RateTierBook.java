@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Market collapsed into one tier per distinct rate, with the money and the number of lenders of each tier in fixed
+ * point, as in {@link FixedPointBook}: markets have millions of lenders but a few hundred rates.
+ * <p>
+ * A quote weights the last lender it needs with all its money, so the tier of that lender also keeps the running
+ * total of its lenders in file order, the order they are taken in. Only the lenders a loan up to the cover amount can
+ * reach are kept: once the lenders of a tier cover it on their own, the later ones of that tier never are the last
+ * lender, and tiers after the first one covering it are never reached. The row of every kept lender in the file is
+ * kept too when an allocation breakdown is wanted.
+ */
+class RateTierBook {
+
+    // Rate of every tier in millionths, ascending
+    private final long[] rates;
+    // cumulativePence[t] is the money available from tiers 0..t
+    private final long[] cumulativePence;
+    // cumulativeWeighted[t] is the sum of available * rate of tiers 0..t, in FixedPointBook.WEIGHTED_SCALE
+    private final long[] cumulativeWeighted;
+    // cumulativeLenders[t] is the number of lenders of tiers 0..t
+    private final long[] cumulativeLenders;
+    // Kept lenders of tier t are firstKept[t] until firstKept[t + 1]
+    private final int[] firstKept;
+    // Running total of the kept lenders of each tier, from the first lender of the tier
+    private final long[] keptCumulativePence;
+    // Row of every kept lender in the file, from 0 for the first lender, null when not kept
+    private final int[] keptRows;
+
+    private RateTierBook(long[] rates, long[] cumulativePence, long[] cumulativeWeighted, long[] cumulativeLenders,
+            int[] firstKept, long[] keptCumulativePence, int[] keptRows) {
+        this.rates = rates;
+        this.cumulativePence = cumulativePence;
+        this.cumulativeWeighted = cumulativeWeighted;
+        this.cumulativeLenders = cumulativeLenders;
+        this.firstKept = firstKept;
+        this.keptCumulativePence = keptCumulativePence;
+        this.keptRows = keptRows;
+    }
+
+    /**
+     * @param filePath to CSV file
+     * @param csv      reader of the file
+     * @param keepRows if {@link #allocations(long)} is needed
+     * @return tiers covering any valid loan
+     * @throws IOException if reading the file
+     */
+    static RateTierBook load(String filePath, CSV csv, boolean keepRows) throws IOException {
+        Builder builder = new Builder(Loan.MAX_AMOUNT * 100L, keepRows);
+        csv.readLenders(filePath, builder);
+        return builder.build();
+    }
+
+    int tiers() {
+        return rates.length;
+    }
+
+    /**
+     * @return rate of the tier in millionths
+     */
+    long getRate(int tier) {
+        return rates[tier];
+    }
+
+    long getLenders(int tier) {
+        return cumulativeLenders[tier] - (tier == 0 ? 0 : cumulativeLenders[tier - 1]);
+    }
+
+    long getAvailablePence(int tier) {
+        return cumulativePence[tier] - (tier == 0 ? 0 : cumulativePence[tier - 1]);
+    }
+
+    long getTotalPence() {
+        return rates.length == 0 ? 0 : cumulativePence[rates.length - 1];
+    }
+
+    /**
+     * @return lenders whose running totals are kept, at most the ones a loan up to the cover amount can reach
+     */
+    int getKeptLenders() {
+        return keptCumulativePence.length;
+    }
+
+    /**
+     * Binary search over the tiers, then over the kept lenders of the last tier needed.
+     *
+     * @param amountPence at most the cover amount of the book
+     * @return sum of available * rate of the lenders covering the amount, the last one with all its money, in
+     * {@link FixedPointBook#WEIGHTED_SCALE}, -1 if the market can not cover it
+     */
+    long weightedCovering(long amountPence) {
+        int tier = tierCovering(amountPence);
+        if (tier < 0) {
+            return -1;
+        }
+        int last = lastLender(tier, amountPence);
+        return (tier == 0 ? 0 : cumulativeWeighted[tier - 1])
+                + Math.multiplyExact(keptCumulativePence[last], rates[tier]);
+    }
+
+    /**
+     * @return number of lenders covering the amount, 0 if the market can not cover it
+     */
+    long lendersCovering(long amountPence) {
+        int tier = tierCovering(amountPence);
+        if (tier < 0) {
+            return 0;
+        }
+        return (tier == 0 ? 0 : cumulativeLenders[tier - 1]) + lastLender(tier, amountPence) - firstKept[tier] + 1;
+    }
+
+    /**
+     * Money of every lender covering the amount, the last one with all its money as quoted.
+     *
+     * @return lenders by rate and in file order on equal rates, empty if the market can not cover the amount
+     * @throws IllegalStateException if the rows of the lenders were not kept
+     */
+    List<Allocation> allocations(long amountPence) {
+        if (keptRows == null) {
+            throw new IllegalStateException("Rows of the lenders were not kept");
+        }
+        int lastTier = tierCovering(amountPence);
+        if (lastTier < 0) {
+            return Collections.emptyList();
+        }
+        int last = lastLender(lastTier, amountPence);
+        List<Allocation> allocations = new ArrayList<>();
+        for (int tier = 0; tier <= lastTier; tier++) {
+            int end = tier == lastTier ? last + 1 : firstKept[tier + 1];
+            for (int i = firstKept[tier]; i < end; i++) {
+                long previous = i == firstKept[tier] ? 0 : keptCumulativePence[i - 1];
+                allocations.add(new Allocation(keptRows[i], rates[tier], keptCumulativePence[i] - previous));
+            }
+        }
+        return allocations;
+    }
+
+    private int tierCovering(long amountPence) {
+        int low = 0;
+        int high = cumulativePence.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativePence[middle] >= amountPence) {
+                found = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return found;
+    }
+
+    // Index of the first kept lender of the tier whose running total covers what the cheaper tiers do not
+    private int lastLender(int tier, long amountPence) {
+        long needed = amountPence - (tier == 0 ? 0 : cumulativePence[tier - 1]);
+        int index = Arrays.binarySearch(keptCumulativePence, firstKept[tier], firstKept[tier + 1], needed);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // First of the lenders without money reaching the same total
+        while (index > firstKept[tier] && keptCumulativePence[index - 1] == needed) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Money of one lender, known by its row in the file.
+     */
+    static class Allocation {
+
+        private final int row;
+        private final long rate;
+        private final long pence;
+
+        Allocation(int row, long rate, long pence) {
+            this.row = row;
+            this.rate = rate;
+            this.pence = pence;
+        }
+
+        /**
+         * @return row of the lender in the file, 0 for the first lender after the header
+         */
+        int getRow() {
+            return row;
+        }
+
+        /**
+         * @return rate in millionths
+         */
+        long getRate() {
+            return rate;
+        }
+
+        long getPence() {
+            return pence;
+        }
+
+        BigDecimal getAmount() {
+            return BigDecimal.valueOf(pence, FixedPointBook.PENCE_SCALE);
+        }
+    }
+
+    /**
+     * Collects lenders into tiers, in file order.
+     */
+    static class Builder implements Consumer<Lender> {
+
+        private final long coverPence;
+        private final boolean keepRows;
+        private final Map<Long, Tier> tiers = new HashMap<>();
+        private int row;
+
+        /**
+         * @param coverPence biggest loan the book quotes
+         */
+        Builder(long coverPence, boolean keepRows) {
+            this.coverPence = coverPence;
+            this.keepRows = keepRows;
+        }
+
+        @Override
+        public void accept(Lender lender) {
+            long rate = FixedPointBook.toLong(lender.getRate(), FixedPointBook.RATE_SCALE, "rate");
+            long pence = FixedPointBook.toLong(lender.getAvailable(), FixedPointBook.PENCE_SCALE, "available");
+            Tier tier = tiers.get(rate);
+            if (tier == null) {
+                tier = new Tier(rate, keepRows);
+                tiers.put(rate, tier);
+            }
+            tier.add(pence, row++, coverPence);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the sums do not fit in fixed point
+         */
+        RateTierBook build() {
+            List<Tier> sorted = new ArrayList<>(tiers.values());
+            sorted.sort((a, b) -> Long.compare(a.rate, b.rate));
+            int count = sorted.size();
+            long[] rates = new long[count];
+            long[] cumulativePence = new long[count];
+            long[] cumulativeWeighted = new long[count];
+            long[] cumulativeLenders = new long[count];
+            int[] firstKept = new int[count + 1];
+            long totalPence = 0;
+            long totalWeighted = 0;
+            long totalLenders = 0;
+            int kept = 0;
+            for (int t = 0; t < count; t++) {
+                Tier tier = sorted.get(t);
+                try {
+                    totalPence = Math.addExact(totalPence, tier.pence);
+                    totalWeighted = Math.addExact(totalWeighted, Math.multiplyExact(tier.pence, tier.rate));
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Market is too big for fixed point quotes", e);
+                }
+                totalLenders += tier.lenders;
+                rates[t] = tier.rate;
+                cumulativePence[t] = totalPence;
+                cumulativeWeighted[t] = totalWeighted;
+                cumulativeLenders[t] = totalLenders;
+                firstKept[t] = kept;
+                // Tiers after the first one covering the biggest loan are never reached
+                boolean reached = t == 0 || cumulativePence[t - 1] < coverPence;
+                if (reached) {
+                    kept += tier.kept;
+                }
+            }
+            firstKept[count] = kept;
+            long[] keptCumulativePence = new long[kept];
+            int[] keptRows = keepRows ? new int[kept] : null;
+            for (int t = 0; t < count; t++) {
+                int length = firstKept[t + 1] - firstKept[t];
+                System.arraycopy(sorted.get(t).cumulativePence, 0, keptCumulativePence, firstKept[t], length);
+                if (keepRows) {
+                    System.arraycopy(sorted.get(t).rows, 0, keptRows, firstKept[t], length);
+                }
+            }
+            return new RateTierBook(rates, cumulativePence, cumulativeWeighted, cumulativeLenders, firstKept,
+                    keptCumulativePence, keptRows);
+        }
+    }
+
+    private static class Tier {
+
+        private final long rate;
+        private long pence;
+        private long lenders;
+        // Running totals of the first lenders of the tier, until they cover the biggest loan
+        private long[] cumulativePence = new long[4];
+        private int[] rows;
+        private int kept;
+
+        Tier(long rate, boolean keepRows) {
+            this.rate = rate;
+            this.rows = keepRows ? new int[4] : null;
+        }
+
+        void add(long lenderPence, int row, long coverPence) {
+            if (pence < coverPence) {
+                if (kept == cumulativePence.length) {
+                    cumulativePence = Arrays.copyOf(cumulativePence, 2 * kept);
+                    if (rows != null) {
+                        rows = Arrays.copyOf(rows, 2 * kept);
+                    }
+                }
+                cumulativePence[kept] = pence + lenderPence;
+                if (rows != null) {
+                    rows[kept] = row;
+                }
+                kept++;
+            }
+            try {
+                pence = Math.addExact(pence, lenderPence);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Market is too big for fixed point quotes", e);
+            }
+            lenders++;
+        }
+    }
+}
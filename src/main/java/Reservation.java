@@ -0,0 +1,42 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accepted quote holding the money of its lenders until it is released.
+ */
+class Reservation {
+
+    private final BorrowerInfo borrowerInfo;
+    private final List<ReservationBook.Allocation> allocations;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Reservation(BorrowerInfo borrowerInfo, List<ReservationBook.Allocation> allocations) {
+        this.borrowerInfo = borrowerInfo;
+        this.allocations = allocations;
+    }
+
+    /**
+     * Quote of the money actually taken: the last lender only weights what was taken from it.
+     */
+    BorrowerInfo getBorrowerInfo() {
+        return borrowerInfo;
+    }
+
+    /**
+     * @return money taken from every lender, cheapest first
+     */
+    List<ReservationBook.Allocation> getAllocations() {
+        return allocations;
+    }
+
+    boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * @return if this call released it, false if it was already released
+     */
+    boolean markReleased() {
+        return released.compareAndSet(false, true);
+    }
+}
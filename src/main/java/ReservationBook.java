@@ -0,0 +1,181 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Money of every lender of a market that accepted quotes take, so two borrowers never get the same pence.
+ * <p>
+ * Lenders keep the order of the {@link MarketBook}. Each lender's remaining pence is taken with its own compare and
+ * set, without any lock shared by all borrowers: a reservation walks the lenders from the cheapest, takes what it
+ * needs from each, and gives everything back if the market runs out before the amount is covered. Concurrent
+ * reservations may therefore fail while another one holds money it is about to give back.
+ */
+class ReservationBook {
+
+    private final List<Lender> lenders;
+    // Rate of every lender in millionths
+    private final long[] rates;
+    private final AtomicLongArray remainingPence;
+    // Version in the high 32 bits, index before which every lender was seen empty in the low 32 bits.
+    // Releases change the version, so a reservation racing with a release can not skip the money given back.
+    private final AtomicLong firstWithMoney = new AtomicLong();
+
+    ReservationBook(MarketBook book) {
+        this.lenders = book.getLenders();
+        this.rates = new long[book.size()];
+        this.remainingPence = new AtomicLongArray(book.size());
+        for (int i = 0; i < book.size(); i++) {
+            Lender lender = lenders.get(i);
+            rates[i] = FixedPointBook.toLong(lender.getRate(), FixedPointBook.RATE_SCALE, "rate");
+            remainingPence.set(i, FixedPointBook.toLong(lender.getAvailable(), FixedPointBook.PENCE_SCALE,
+                    "available"));
+        }
+    }
+
+    /**
+     * Same lenders with the money the other book has left, taken from and given back independently of it.
+     */
+    ReservationBook(ReservationBook other) {
+        this.lenders = other.lenders;
+        this.rates = other.rates;
+        this.remainingPence = new AtomicLongArray(other.remainingPence.length());
+        for (int i = 0; i < remainingPence.length(); i++) {
+            remainingPence.set(i, other.remainingPence.get(i));
+        }
+        this.firstWithMoney.set(other.firstWithMoney.get());
+    }
+
+    int size() {
+        return lenders.size();
+    }
+
+    Lender getLender(int index) {
+        return lenders.get(index);
+    }
+
+    long getRemainingPence(int index) {
+        return remainingPence.get(index);
+    }
+
+    long getTotalRemainingPence() {
+        long total = 0;
+        for (int i = 0; i < remainingPence.length(); i++) {
+            total += remainingPence.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Takes the amount from the cheapest lenders with money left, all of it or nothing.
+     *
+     * @return money taken from every lender, empty if the money left can not cover the amount
+     */
+    Optional<List<Allocation>> reserve(long amountPence) {
+        if (amountPence <= 0) {
+            throw new IllegalArgumentException("Amount to reserve must be positive: " + amountPence);
+        }
+        long hint = firstWithMoney.get();
+        int first = (int) hint;
+        boolean emptyPrefix = true;
+        List<Allocation> allocations = new ArrayList<>();
+        long needed = amountPence;
+        for (int i = first; i < remainingPence.length() && needed > 0; i++) {
+            long taken = take(i, needed);
+            if (taken > 0) {
+                allocations.add(new Allocation(i, lenders.get(i), rates[i], taken));
+                needed -= taken;
+            }
+            if (emptyPrefix && remainingPence.get(i) == 0) {
+                first = i + 1;
+            } else {
+                emptyPrefix = false;
+            }
+        }
+        if (first != (int) hint) {
+            firstWithMoney.compareAndSet(hint, (hint & 0xFFFFFFFF00000000L) | first);
+        }
+        if (needed > 0) {
+            giveBack(allocations);
+            return Optional.empty();
+        }
+        return Optional.of(Collections.unmodifiableList(allocations));
+    }
+
+    /**
+     * Gives back money taken by {@link #reserve(long)}, each allocation once.
+     */
+    void release(List<Allocation> allocations) {
+        giveBack(allocations);
+    }
+
+    // Takes up to the amount from a lender, as much as it has left
+    private long take(int index, long amount) {
+        while (true) {
+            long remaining = remainingPence.get(index);
+            if (remaining == 0) {
+                return 0;
+            }
+            long taken = Math.min(remaining, amount);
+            if (remainingPence.compareAndSet(index, remaining, remaining - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    private void giveBack(List<Allocation> allocations) {
+        if (allocations.isEmpty()) {
+            return;
+        }
+        int lowest = Integer.MAX_VALUE;
+        for (Allocation allocation : allocations) {
+            remainingPence.addAndGet(allocation.index, allocation.pence);
+            lowest = Math.min(lowest, allocation.index);
+        }
+        while (true) {
+            long hint = firstWithMoney.get();
+            long version = (hint >>> 32) + 1;
+            if (firstWithMoney.compareAndSet(hint, version << 32 | Math.min((int) hint, lowest))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Money taken from one lender.
+     */
+    static class Allocation {
+
+        private final int index;
+        private final Lender lender;
+        private final long rate;
+        private final long pence;
+
+        Allocation(int index, Lender lender, long rate, long pence) {
+            this.index = index;
+            this.lender = lender;
+            this.rate = rate;
+            this.pence = pence;
+        }
+
+        Lender getLender() {
+            return lender;
+        }
+
+        long getPence() {
+            return pence;
+        }
+
+        BigDecimal getAmount() {
+            return BigDecimal.valueOf(pence, FixedPointBook.PENCE_SCALE);
+        }
+
+        // pence * rate, in FixedPointBook.WEIGHTED_SCALE
+        long getWeighted() {
+            return Math.multiplyExact(pence, rate);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Quote rounded down as Main displays it: the rate to a tenth of a percent, the repayments to the penny.
+ */
+class RoundedQuote {
+
+    private final int requestedAmount;
+    private final int termMonths;
+    private final long rateTenthsOfPercent;
+    private final long monthlyRepaymentPence;
+    private final long totalRepaymentPence;
+    // If rounding the double results was not certain and the BigDecimal quote was rounded instead
+    private final boolean exact;
+
+    RoundedQuote(int requestedAmount, int termMonths, long rateTenthsOfPercent, long monthlyRepaymentPence,
+            long totalRepaymentPence, boolean exact) {
+        this.requestedAmount = requestedAmount;
+        this.termMonths = termMonths;
+        this.rateTenthsOfPercent = rateTenthsOfPercent;
+        this.monthlyRepaymentPence = monthlyRepaymentPence;
+        this.totalRepaymentPence = totalRepaymentPence;
+        this.exact = exact;
+    }
+
+    /**
+     * Rounds a BigDecimal quote as Main displays it.
+     */
+    static RoundedQuote of(BorrowerInfo borrowerInfo, int termMonths) {
+        return new RoundedQuote(borrowerInfo.getRequestedAmount().intValue(), termMonths,
+                roundDown(borrowerInfo.getRate(), 3), roundDown(borrowerInfo.getMonthlyRepayment(), 2),
+                roundDown(borrowerInfo.getTotalRepayment(), 2), true);
+    }
+
+    // Whole number of the units with that many decimals, rounded down
+    private static long roundDown(BigDecimal value, int decimals) {
+        return value.movePointRight(decimals).setScale(0, BigDecimal.ROUND_DOWN).longValueExact();
+    }
+
+    int getRequestedAmount() {
+        return requestedAmount;
+    }
+
+    int getTermMonths() {
+        return termMonths;
+    }
+
+    long getRateTenthsOfPercent() {
+        return rateTenthsOfPercent;
+    }
+
+    long getMonthlyRepaymentPence() {
+        return monthlyRepaymentPence;
+    }
+
+    long getTotalRepaymentPence() {
+        return totalRepaymentPence;
+    }
+
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Appends a line of {@link BatchQuoter#HEADER}.
+     */
+    void appendCsv(StringBuilder out) {
+        out.append(requestedAmount).append(',').append(termMonths).append(',')
+                .append(rateTenthsOfPercent / 10).append('.').append(rateTenthsOfPercent % 10).append("%,");
+        appendPence(monthlyRepaymentPence, out);
+        out.append(',');
+        appendPence(totalRepaymentPence, out);
+        out.append('\n');
+    }
+
+    private static void appendPence(long pence, StringBuilder out) {
+        long cents = pence % 100;
+        out.append(pence / 100).append('.').append(cents < 10 ? "0" : "").append(cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof RoundedQuote))
+            return false;
+        RoundedQuote that = (RoundedQuote) o;
+        // How it was computed does not matter
+        return requestedAmount == that.requestedAmount && termMonths == that.termMonths
+                && rateTenthsOfPercent == that.rateTenthsOfPercent
+                && monthlyRepaymentPence == that.monthlyRepaymentPence
+                && totalRepaymentPence == that.totalRepaymentPence;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(requestedAmount, termMonths, rateTenthsOfPercent, monthlyRepaymentPence,
+                totalRepaymentPence);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        appendCsv(text);
+        return text.substring(0, text.length() - 1);
+    }
+}
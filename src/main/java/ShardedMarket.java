@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Several markets quoted as one, with the same quotes as a single market of all their lenders in order: the markets
+ * of regions or products, each from its own CSV file, or a very large market split into rate ranges.
+ * <p>
+ * Each shard is a {@link MarketBook} built on its own, so shards are read and sorted concurrently. A quote merges the
+ * cheapest lenders of the shards by rate, lenders with the same rate taken in shard order as the stable sort of the
+ * concatenated market would.
+ */
+class ShardedMarket {
+
+    private final List<MarketBook> shards;
+    private final BigDecimal totalAvailable;
+
+    /**
+     * @param shards in the order their lenders would have in a single market
+     */
+    ShardedMarket(List<MarketBook> shards) {
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        BigDecimal total = BigDecimal.ZERO;
+        for (MarketBook shard : shards) {
+            total = total.add(shard.getTotalAvailable());
+        }
+        this.totalAvailable = total;
+    }
+
+    /**
+     * Reads every file on the executor, all at once.
+     *
+     * @param filePaths to CSV files, one shard each
+     * @throws IOException of the first file that can not be read
+     */
+    static ShardedMarket load(List<String> filePaths, CSV csv, Executor executor) throws IOException {
+        List<CompletableFuture<MarketBook>> loads = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            loads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return MarketBook.load(filePath, csv);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        List<MarketBook> shards = new ArrayList<>(loads.size());
+        for (CompletableFuture<MarketBook> load : loads) {
+            try {
+                shards.add(load.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        return new ShardedMarket(shards);
+    }
+
+    /**
+     * Splits a market in rate ranges of about the same number of lenders, sorted on the pool in parallel.
+     * Lenders with the same rate always end up in the same shard, keeping their order.
+     *
+     * @param lenders   in CSV file order
+     * @param maxShards fewer when too many lenders have the same rates
+     */
+    static ShardedMarket byRate(List<Lender> lenders, int maxShards, ForkJoinPool pool) {
+        if (maxShards <= 0) {
+            throw new IllegalArgumentException("Shards must be positive: " + maxShards);
+        }
+        List<BigDecimal> sample = new ArrayList<>();
+        int stride = Math.max(1, lenders.size() / (64 * maxShards));
+        for (int i = 0; i < lenders.size(); i += stride) {
+            sample.add(lenders.get(i).getRate());
+        }
+        Collections.sort(sample);
+        // A shard takes the rates from its lower bound included to the next bound excluded
+        List<BigDecimal> bounds = new ArrayList<>();
+        for (int s = 1; s < maxShards && !sample.isEmpty(); s++) {
+            BigDecimal bound = sample.get(s * sample.size() / maxShards);
+            if (bounds.isEmpty() || bound.compareTo(bounds.get(bounds.size() - 1)) > 0) {
+                bounds.add(bound);
+            }
+        }
+        List<List<Lender>> parts = new ArrayList<>();
+        for (int s = 0; s <= bounds.size(); s++) {
+            parts.add(new ArrayList<>(lenders.size() / (bounds.size() + 1)));
+        }
+        for (Lender lender : lenders) {
+            int shard = Collections.binarySearch(bounds, lender.getRate());
+            parts.get(shard >= 0 ? shard + 1 : -shard - 1).add(lender);
+        }
+        List<ForkJoinTask<MarketBook>> sorts = new ArrayList<>(parts.size());
+        for (List<Lender> part : parts) {
+            sorts.add(pool.submit(() -> new MarketBook(part)));
+        }
+        List<MarketBook> shards = new ArrayList<>(sorts.size());
+        for (ForkJoinTask<MarketBook> sort : sorts) {
+            shards.add(sort.join());
+        }
+        return new ShardedMarket(shards);
+    }
+
+    List<MarketBook> getShards() {
+        return shards;
+    }
+
+    BigDecimal getTotalAvailable() {
+        return totalAvailable;
+    }
+
+    /**
+     * Sum of available * rate of the cheapest lenders of all shards covering the amount, the last of them with all
+     * its available money, as {@link MarketBook#getCumulativeWeighted(int)} of the concatenated market.
+     * <p>
+     * Merges the shards a run of lenders at a time: the shard with the cheapest next lender gives every lender up to
+     * the next lender of another shard, added up from its running totals. Shards of disjoint rate ranges are each a
+     * single run.
+     *
+     * @return weighted sum, null if the shards together can not cover the amount
+     */
+    BigDecimal weightedCovering(BigDecimal amount) {
+        Covering covering = covering(amount);
+        return covering == null ? null : covering.weighted;
+    }
+
+    /**
+     * @return number of lenders of all shards covering the amount, 0 if the shards together can not cover it
+     */
+    long lendersCovering(BigDecimal amount) {
+        Covering covering = covering(amount);
+        return covering == null ? 0 : covering.lenders;
+    }
+
+    private Covering covering(BigDecimal amount) {
+        if (totalAvailable.compareTo(amount) < 0) {
+            return null;
+        }
+        // Next lender of every shard
+        int[] next = new int[shards.size()];
+        BigDecimal needed = amount;
+        BigDecimal weighted = BigDecimal.ZERO;
+        long lenders = 0;
+        while (true) {
+            int cheapest = -1;
+            int runnerUp = -1;
+            for (int s = 0; s < shards.size(); s++) {
+                if (next[s] == shards.get(s).size()) {
+                    continue;
+                }
+                // Same rates are taken in shard order
+                if (cheapest < 0 || rate(s, next).compareTo(rate(cheapest, next)) < 0) {
+                    runnerUp = cheapest;
+                    cheapest = s;
+                } else if (runnerUp < 0 || rate(s, next).compareTo(rate(runnerUp, next)) < 0) {
+                    runnerUp = s;
+                }
+            }
+            MarketBook shard = shards.get(cheapest);
+            int from = next[cheapest];
+            int to = runnerUp < 0 ? shard.size() :
+                    countBelow(shard, from, rate(runnerUp, next), cheapest < runnerUp);
+            BigDecimal base = available(shard, from);
+            BigDecimal run = available(shard, to).subtract(base);
+            if (run.compareTo(needed) >= 0) {
+                int last = shard.indexCovering(base.add(needed));
+                return new Covering(weighted.add(shard.getCumulativeWeighted(last)).subtract(weighted(shard, from)),
+                        lenders + last - from + 1);
+            }
+            needed = needed.subtract(run);
+            weighted = weighted.add(weighted(shard, to)).subtract(weighted(shard, from));
+            lenders += to - from;
+            next[cheapest] = to;
+        }
+    }
+
+    private BigDecimal rate(int shard, int[] next) {
+        return shards.get(shard).getLenders().get(next[shard]).getRate();
+    }
+
+    /**
+     * @param inclusive if lenders at the rate are counted
+     * @return index of the first lender of the shard from that index on whose rate is above the rate, or at it when
+     * not inclusive
+     */
+    private static int countBelow(MarketBook shard, int from, BigDecimal rate, boolean inclusive) {
+        int low = from;
+        int high = shard.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = shard.getLenders().get(middle).getRate().compareTo(rate);
+            if (comparison < 0 || inclusive && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Money of the first lenders of the shard
+    private static BigDecimal available(MarketBook shard, int lenders) {
+        return lenders == 0 ? BigDecimal.ZERO : shard.getCumulativeAvailable(lenders - 1);
+    }
+
+    private static BigDecimal weighted(MarketBook shard, int lenders) {
+        return lenders == 0 ? BigDecimal.ZERO : shard.getCumulativeWeighted(lenders - 1);
+    }
+
+    // Lenders covering an amount
+    private static class Covering {
+
+        private final BigDecimal weighted;
+        private final long lenders;
+
+        Covering(BigDecimal weighted, long lenders) {
+            this.weighted = weighted;
+            this.lenders = lenders;
+        }
+    }
+}
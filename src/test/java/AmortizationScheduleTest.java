@@ -0,0 +1,115 @@
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.net.URISyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AmortizationScheduleTest {
+
+    private static String CSV;
+
+    @BeforeClass
+    public static void before() throws URISyntaxException {
+        CSV = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+    }
+
+    @Test
+    public void paymentsReconcileWithTotalRepayment() {
+        Loan loan = new Loan();
+        BorrowerInfo borrowerInfo = loan.calculate(CSV, 1000, new CSV()).get();
+
+        BigDecimal payments = BigDecimal.ZERO;
+        BigDecimal principal = BigDecimal.ZERO;
+        BigDecimal interest = BigDecimal.ZERO;
+        AmortizationSchedule.Row last = null;
+        int months = 0;
+        for (AmortizationSchedule.Row row : loan.schedule(borrowerInfo)) {
+            assertThat(row.getMonth()).isEqualTo(++months);
+            assertThat(row.getPayment()).isEqualByComparingTo(row.getInterest().add(row.getPrincipal()));
+            payments = payments.add(row.getPayment());
+            principal = principal.add(row.getPrincipal());
+            interest = interest.add(row.getInterest());
+            last = row;
+        }
+
+        assertThat(months).isEqualTo(36);
+        assertThat(last.getBalance()).isEqualByComparingTo("0");
+        assertThat(payments).isEqualByComparingTo(borrowerInfo.getTotalRepayment());
+        assertThat(principal).isEqualByComparingTo(borrowerInfo.getRequestedAmount());
+        assertThat(interest.setScale(2, RoundingMode.DOWN)).isEqualTo(new BigDecimal("108.10"));
+    }
+
+    @Test
+    public void firstMonthInterest() {
+        Loan loan = new Loan();
+        BorrowerInfo borrowerInfo = loan.calculate(CSV, 1000, new CSV()).get();
+
+        AmortizationSchedule.Row first = loan.schedule(borrowerInfo).iterator().next();
+
+        // 1000 * ((1.07)^(1/12) - 1)
+        assertThat(first.getInterest().setScale(2, RoundingMode.DOWN)).isEqualTo(new BigDecimal("5.65"));
+        assertThat(first.getBalance()).isLessThan(new BigDecimal("1000"));
+    }
+
+    @Test
+    public void interestAtThePrecisionOfTheLoan() {
+        Loan loan = new Loan().withMathContext(MathContext.DECIMAL32);
+        BorrowerInfo borrowerInfo = loan.calculate(CSV, 1000, new CSV()).get();
+
+        // The last month pays the balance left
+        for (AmortizationSchedule.Row row : loan.schedule(borrowerInfo)) {
+            if (row.getMonth() < 36) {
+                assertThat(row.getInterest().precision()).as("Interest of month %d", row.getMonth())
+                        .isLessThanOrEqualTo(MathContext.DECIMAL32.getPrecision());
+            }
+        }
+    }
+
+    @Test
+    public void zeroRate() {
+        BorrowerInfo borrowerInfo = new BorrowerInfo(new BigDecimal("3600"), BigDecimal.ZERO, new BigDecimal("100"),
+                new BigDecimal("3600"));
+
+        for (AmortizationSchedule.Row row : new Loan().schedule(borrowerInfo)) {
+            assertThat(row.getInterest()).isEqualByComparingTo("0");
+            assertThat(row.getBalance()).isEqualByComparingTo(new BigDecimal(3600 - 100 * row.getMonth()));
+        }
+    }
+
+    @Test
+    public void writeCsv() throws IOException {
+        Loan loan = new Loan();
+        StringBuilder out = new StringBuilder();
+
+        loan.schedule(loan.calculate(CSV, 1000, new CSV()).get()).writeCsv(out);
+
+        String[] lines = out.toString().split("\n");
+        assertThat(lines).hasSize(37);
+        assertThat(lines[0]).isEqualTo(AmortizationSchedule.CSV_HEADER);
+        assertThat(lines[36]).startsWith("36,");
+        assertThat(new BigDecimal(lines[36].split(",")[4])).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void writeBinary() throws IOException {
+        Loan loan = new Loan();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        loan.schedule(loan.calculate(CSV, 1000, new CSV()).get()).writeBinary(new DataOutputStream(bytes));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(in.readInt()).isEqualTo(36);
+        assertThat(in.readInt()).isEqualTo(1);
+        assertThat(in.readDouble()).isBetween(30.78, 30.79);
+        assertThat(bytes.size()).isEqualTo(4 + 36 * (4 + 4 * 8));
+    }
+}
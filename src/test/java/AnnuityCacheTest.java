@@ -0,0 +1,74 @@
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnnuityCacheTest {
+
+    @Test
+    public void countsHitsAndMisses() {
+        AnnuityCache cache = new AnnuityCache(10);
+
+        AnnuityCache.Annuity first = cache.get(new BigDecimal("0.07"), 36, MathContext.DECIMAL128);
+        AnnuityCache.Annuity second = cache.get(new BigDecimal("0.070"), 36, MathContext.DECIMAL128);
+        cache.get(new BigDecimal("0.07"), 12, MathContext.DECIMAL128);
+        cache.get(new BigDecimal("0.07"), 36, MathContext.DECIMAL64);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(3);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        AnnuityCache cache = new AnnuityCache(2);
+        cache.get(new BigDecimal("0.01"), 36, MathContext.DECIMAL128);
+        cache.get(new BigDecimal("0.02"), 36, MathContext.DECIMAL128);
+        cache.get(new BigDecimal("0.01"), 36, MathContext.DECIMAL128);
+        cache.get(new BigDecimal("0.03"), 36, MathContext.DECIMAL128);
+
+        cache.get(new BigDecimal("0.01"), 36, MathContext.DECIMAL128);
+        assertThat(cache.getHits()).isEqualTo(2);
+        cache.get(new BigDecimal("0.02"), 36, MathContext.DECIMAL128);
+        assertThat(cache.getMisses()).isEqualTo(4);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void monthlyRepaymentOf1000At7Percent() {
+        AnnuityCache.Annuity annuity = new AnnuityCache(1).get(new BigDecimal("0.07"), 36, MathContext.DECIMAL128);
+
+        assertThat(annuity.monthlyRepayment(new BigDecimal("1000"), MathContext.DECIMAL128).setScale(2,
+                BigDecimal.ROUND_DOWN)).isEqualTo(new BigDecimal("30.77"));
+    }
+
+    @Test
+    public void concurrentQuotesShareTheCache() throws Exception {
+        AnnuityCache cache = new AnnuityCache(AnnuityCache.DEFAULT_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<BigDecimal>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                BigDecimal rate = BigDecimal.valueOf(1 + i % 20, 2);
+                results.add(executor.submit(() -> cache.get(rate, 36, MathContext.DECIMAL128).getMonthlyRate()));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                BigDecimal rate = BigDecimal.valueOf(1 + i % 20, 2);
+                assertThat(results.get(i).get()).isEqualTo(
+                        AnnuityCache.Annuity.of(rate, 36, MathContext.DECIMAL128).getMonthlyRate());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(cache.getHits() + cache.getMisses()).isEqualTo(400);
+        assertThat(cache.size()).isEqualTo(20);
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnnuityTableTest {
+
+    @Test
+    public void sameAsDirectFormulaForEveryTerm() {
+        Random random = new Random(17);
+        for (int market = 0; market < 5; market++) {
+            FixedPointBook book = new FixedPointBook(new MarketBook(TestMarkets.randomLenders(random, 200)));
+            Loan loan = new Loan();
+            AnnuityTable table = loan.tabulate(book, Loan.TERMS_MONTHS);
+            for (int term : Loan.TERMS_MONTHS) {
+                assertSameQuotes(loan.withTerm(term), book, table);
+            }
+        }
+    }
+
+    @Test
+    public void zeroRate() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("Free", BigDecimal.ZERO, new BigDecimal("20000")));
+        FixedPointBook book = new FixedPointBook(new MarketBook(lenders));
+        Loan loan = new Loan().withTerm(12);
+        AnnuityTable table = loan.tabulate(book, 12);
+
+        BorrowerInfo borrowerInfo = loan.calculate(table, 1200).get();
+
+        assertThat(borrowerInfo.getMonthlyRepayment()).isEqualByComparingTo("100");
+        assertThat(borrowerInfo.getTotalRepayment()).isEqualByComparingTo("1200");
+        assertSameQuotes(loan, book, table);
+    }
+
+    @Test
+    public void marketNotCovering() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("Bob", new BigDecimal("0.07"), new BigDecimal("1500")));
+        Loan loan = new Loan();
+        AnnuityTable table = loan.tabulate(new FixedPointBook(new MarketBook(lenders)), Loan.DEFAULT_TERM_MONTHS);
+
+        assertThat(loan.calculate(table, 1500)).isNotEmpty();
+        assertThat(loan.calculate(table, 1600)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void termNotInTable() {
+        Loan loan = new Loan();
+        AnnuityTable table = loan.tabulate(new FixedPointBook(new MarketBook(
+                TestMarkets.randomLenders(new Random(1), 200))), 12);
+
+        loan.withTerm(24).calculate(table, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTerm() {
+        new Loan().withTerm(18);
+    }
+
+    private static void assertSameQuotes(Loan loan, FixedPointBook book, AnnuityTable table) {
+        TestMarkets.assertSameDisplayedQuotes(amount -> loan.calculate(book, amount),
+                amount -> loan.calculate(table, amount));
+    }
+}
@@ -0,0 +1,148 @@
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AsyncQuoterTest {
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private final ExecutorService io = Executors.newFixedThreadPool(2);
+    private final ExecutorService compute = Executors.newFixedThreadPool(2);
+    private final Loan loan = new Loan();
+
+    @After
+    public void shutdown() {
+        io.shutdownNow();
+        compute.shutdownNow();
+    }
+
+    @Test
+    public void quote() throws Exception {
+        AsyncQuoter quoter = new AsyncQuoter(loan, io, compute);
+
+        BorrowerInfo borrowerInfo = quoter.quote(csvPath(), 1000).get(10, TimeUnit.SECONDS);
+
+        BorrowerInfo expected = loan.calculate(csvPath(), 1000, new CSV()).get();
+        assertThat(borrowerInfo.getRate()).isEqualByComparingTo(expected.getRate());
+        assertThat(borrowerInfo.getTotalRepayment()).isEqualByComparingTo(expected.getTotalRepayment());
+    }
+
+    @Test
+    public void readInSmallChunks() throws Exception {
+        List<Lender> lenders = TestMarkets.randomLenders(new Random(23), 3000);
+        StringBuilder csv = new StringBuilder("Lender,Rate,Available\r\n");
+        for (int i = 0; i < lenders.size(); i++) {
+            Lender lender = lenders.get(i);
+            csv.append(lender.getName()).append(',').append(lender.getRate()).append(',')
+                    .append(lender.getAvailable()).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        // No line break after the last line
+        File file = write(csv.substring(0, csv.length() - 1));
+        AsyncQuoter quoter = new AsyncQuoter(loan, io, compute, 1000);
+        MarketBook book = new MarketBook(lenders);
+
+        for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += 700) {
+            assertThat(quoter.quote(file.getPath(), amount).get(10, TimeUnit.SECONDS).getRate())
+                    .isEqualByComparingTo(loan.calculate(book, amount).get().getRate());
+        }
+    }
+
+    @Test
+    public void concurrentQuotesShareOneLoad() throws Exception {
+        CountDownLatch ioBusy = new CountDownLatch(1);
+        ExecutorService singleIo = Executors.newSingleThreadExecutor();
+        singleIo.execute(() -> {
+            try {
+                ioBusy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AsyncQuoter quoter = new AsyncQuoter(loan, singleIo, compute);
+        List<CompletableFuture<BorrowerInfo>> quotes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                quotes.add(quoter.quote(csvPath(), 1000 + 100 * (i % 10)));
+            }
+            // Nothing was read yet, the I/O thread is busy
+            assertThat(quotes).noneMatch(CompletableFuture::isDone);
+            ioBusy.countDown();
+            for (CompletableFuture<BorrowerInfo> quote : quotes) {
+                assertThat(quote.get(10, TimeUnit.SECONDS).getRate()).isPositive();
+            }
+            assertThat(quoter.getLoads()).isEqualTo(1);
+
+            // A later quote reads the file again
+            quoter.quote(csvPath(), 1000).get(10, TimeUnit.SECONDS);
+            assertThat(quoter.getLoads()).isEqualTo(2);
+        } finally {
+            singleIo.shutdownNow();
+        }
+    }
+
+    @Test
+    public void insufficientMarket() throws Exception {
+        assertFailure(new AsyncQuoter(loan, io, compute).quote(csvPath(), 15000),
+                AsyncQuoter.InsufficientMarketException.class);
+    }
+
+    @Test
+    public void ioError() throws Exception {
+        assertFailure(new AsyncQuoter(loan, io, compute).quote(csvPath() + "Missing", 1000), IOException.class);
+    }
+
+    @Test
+    public void invalidInput() throws Exception {
+        AsyncQuoter quoter = new AsyncQuoter(loan, io, compute);
+
+        assertFailure(quoter.quote(csvPath(), 1050), IllegalArgumentException.class);
+        assertFailure(quoter.quote("", 1000), IllegalArgumentException.class);
+        assertThat(quoter.getLoads()).isZero();
+        assertFailure(quoter.quote(write("Name,Rate\nBob,0.07\n").getPath(), 1000), IllegalArgumentException.class);
+        assertFailure(quoter.quote(write("").getPath(), 1000), IllegalArgumentException.class);
+        assertFailure(quoter.quote(write("Lender,Rate,Available\nBob,-0.07,1000\n").getPath(), 1000),
+                IllegalArgumentException.class);
+    }
+
+    private static void assertFailure(CompletableFuture<BorrowerInfo> quote, Class<? extends Throwable> failure)
+            throws InterruptedException {
+        try {
+            Optional<BorrowerInfo> borrowerInfo = Optional.of(quote.get(10, TimeUnit.SECONDS));
+            fail("Expected " + failure.getSimpleName() + " instead of " + borrowerInfo);
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(failure);
+        } catch (java.util.concurrent.TimeoutException e) {
+            fail("Quote did not complete");
+        }
+    }
+
+    private File write(String content) throws IOException {
+        File file = testFolder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String csvPath() throws URISyntaxException {
+        return LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchQuoterTest {
+
+    private ExecutorService workers;
+    private FixedPointBook book;
+
+    @Before
+    public void setUp() throws IOException, URISyntaxException {
+        workers = Executors.newFixedThreadPool(4);
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        book = new FixedPointBook(MarketBook.load(csvPath, new CSV()));
+    }
+
+    @After
+    public void tearDown() {
+        workers.shutdown();
+    }
+
+    @Test
+    public void quotesInInputOrder() throws IOException, InterruptedException {
+        Random random = new Random(16);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder(BatchQuoter.HEADER).append('\n');
+        Loan loan = new Loan();
+        for (int i = 0; i < 5000; i++) {
+            // The sample market covers up to £2300
+            int amount = Loan.MIN_AMOUNT + random.nextInt(14) * Loan.AMOUNT_STEP;
+            input.append(amount).append('\n');
+            RoundedQuote.of(loan.calculate(book, amount).get(), Loan.DEFAULT_TERM_MONTHS).appendCsv(expected);
+        }
+        StringWriter quotes = new StringWriter();
+        StringWriter errors = new StringWriter();
+
+        BatchQuoter.Summary summary = new BatchQuoter(loan, book, workers, 4, 7)
+                .run(new BufferedReader(new StringReader(input.toString())), quotes, errors);
+
+        assertThat(quotes.toString()).isEqualTo(expected.toString());
+        assertThat(errors.toString()).isEmpty();
+        assertThat(summary.getLines()).isEqualTo(5000);
+        assertThat(summary.getQuoted()).isEqualTo(5000);
+    }
+
+    @Test
+    public void rejectedAndInvalidAmountsGoToErrors() throws IOException, InterruptedException {
+        StringWriter quotes = new StringWriter();
+        StringWriter errors = new StringWriter();
+
+        BatchQuoter.Summary summary = new BatchQuoter(new Loan(), book, workers, 4, 2)
+                .run(new BufferedReader(new StringReader("1000\nabc\n\n15000\n1050\n1100\n1000,12\n1000,13")),
+                        quotes, errors);
+
+        assertThat(quotes.toString()).isEqualTo(BatchQuoter.HEADER + "\n1000,36,7.0%,30.78,1108.10\n"
+                + "1100,36,7.6%,34.18,1230.67\n"
+                + "1000,12,7.0%,86.42,1037.15\n");
+        assertThat(errors.toString()).isEqualTo("2,abc,Invalid amount\n"
+                + "4,15000,It is not possible to provide a quote at that time.\n"
+                + "5,1050,Invalid amount\n"
+                + "8,1000,13,Invalid amount\n");
+        assertThat(summary.getLines()).isEqualTo(8);
+        assertThat(summary.getQuoted()).isEqualTo(3);
+        assertThat(summary.getRejected()).isEqualTo(1);
+        assertThat(summary.getInvalid()).isEqualTo(3);
+    }
+
+    @Test(expected = IOException.class)
+    public void writeFailure() throws IOException, InterruptedException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append("1000\n");
+        }
+        new BatchQuoter(new Loan(), book, workers, 1, 10)
+                .run(new BufferedReader(new StringReader(input.toString())), new FailingWriter(), new StringWriter());
+    }
+
+    private static class FailingWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            if (length > 1 && !new String(buffer, offset, length).equals(BatchQuoter.HEADER)) {
+                throw new IOException("Disk full");
+            }
+        }
+
+        @Override
+        public void write(String str) throws IOException {
+            write(str.toCharArray(), 0, str.length());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
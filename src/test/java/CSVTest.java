@@ -17,19 +17,19 @@ public class CSVTest {
 
     @Test(expected = IllegalArgumentException.class)
     public void extractLendersEmptyCSVPath() throws IOException {
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders("");
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void extractLendersNullCSVPath() throws IOException {
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders("");
     }
 
     @Test(expected = IOException.class)
     public void extractLendersNonExistingPath() throws IOException {
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders("non_existing_path/zopita");
     }
 
@@ -39,7 +39,7 @@ public class CSVTest {
     public void extractLendersCorrectHeaders() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -48,7 +48,7 @@ public class CSVTest {
     public void extractLendersInvalidHeader() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,JARL");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -56,14 +56,14 @@ public class CSVTest {
     public void extractLendersExceededColumnsInCSV() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available", "Caldo,0.1,100,OtraCosa");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
     // Second line of csv is "Bob,0.075,640"
     @Test
     public void extractLendersCheckFirstLender() throws IOException, URISyntaxException {
-        CSV csv = new CSV();
+        CSV csv = csv();
         String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
         List<Lender> lenders = csv.extractLenders(csvPath);
         assertThat(lenders).contains(new Lender("Bob", new BigDecimal(0.075), new BigDecimal(640)));
@@ -73,7 +73,7 @@ public class CSVTest {
     public void extractLendersIncorrectFormatCurrency() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available", "Caldo,0.1,ShouldBeNumber");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -82,7 +82,7 @@ public class CSVTest {
     public void extractLendersIncorrectFormatRate() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available", "Caldo,ShouldBeNumber,600");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -90,7 +90,7 @@ public class CSVTest {
     public void extractLendersIncorrectFormatRateFormat() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available",  "Caldo,ShouldBeNumber,ShouldBeNumber");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -98,7 +98,7 @@ public class CSVTest {
     public void extractLendersNegativeCurrency() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available", "Caldo,0.1,-600");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -106,7 +106,7 @@ public class CSVTest {
     public void extractLendersNegativeRate() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available", "Caldo,-0.1,600");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
@@ -114,11 +114,15 @@ public class CSVTest {
     public void extractLendersNegativeRateAndCurrent() throws IOException {
         File tempCSV = getCSVFile("Lender,Rate,Available", "Caldo,-0.1,-600");
 
-        CSV csv = new CSV();
+        CSV csv = csv();
         csv.extractLenders(tempCSV.getPath());
     }
 
-    private File getCSVFile(String ... lines) throws IOException {
+    CSV csv() {
+        return new CSV();
+    }
+
+    File getCSVFile(String ... lines) throws IOException {
         StringBuilder appender = new StringBuilder();
         for(String line : lines) {
             appender.append(line);
@@ -0,0 +1,66 @@
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CheapestLendersTest {
+
+    private static final BigDecimal COVER = new BigDecimal("15000");
+
+    @Test
+    public void keepsOnlyReachableLenders() {
+        Lender bob = new Lender("Bob", new BigDecimal("0.05"), new BigDecimal("10000"));
+        Lender jane = new Lender("Jane", new BigDecimal("0.01"), new BigDecimal("10000"));
+        Lender fred = new Lender("Fred", new BigDecimal("0.02"), new BigDecimal("10000"));
+        Lender mary = new Lender("Mary", new BigDecimal("0.03"), new BigDecimal("10000"));
+
+        CheapestLenders cheapest = select(bob, jane, fred, mary);
+
+        assertThat(cheapest.getLenders()).containsExactly(jane, fred);
+        assertThat(cheapest.getKeptAvailable()).isEqualByComparingTo("20000");
+        assertThat(cheapest.getTotalAvailable()).isEqualByComparingTo("40000");
+    }
+
+    @Test
+    public void keepsFileOrderOnEqualRates() {
+        Lender bob = new Lender("Bob", new BigDecimal("0.01"), new BigDecimal("10000"));
+        Lender jane = new Lender("Jane", new BigDecimal("0.01"), new BigDecimal("10000"));
+        Lender fred = new Lender("Fred", new BigDecimal("0.01"), new BigDecimal("10000"));
+
+        assertThat(select(bob, jane, fred).getLenders()).containsExactly(bob, jane);
+    }
+
+    @Test
+    public void keepsEveryLenderWhenMarketDoesNotCover() {
+        Lender bob = new Lender("Bob", new BigDecimal("0.05"), new BigDecimal("600"));
+        Lender jane = new Lender("Jane", new BigDecimal("0.01"), new BigDecimal("400"));
+
+        CheapestLenders cheapest = select(bob, jane);
+
+        assertThat(cheapest.getLenders()).containsExactly(jane, bob);
+        assertThat(cheapest.getTotalAvailable()).isEqualByComparingTo("1000");
+    }
+
+    @Test
+    public void quotesSameAsWholeMarket() {
+        List<Lender> lenders = TestMarkets.randomLenders(new Random(42), 5000);
+        CheapestLenders cheapest = select(lenders.toArray(new Lender[0]));
+        MarketBook whole = new MarketBook(lenders);
+        MarketBook selected = new MarketBook(cheapest.getLenders());
+        Loan loan = new Loan();
+
+        assertThat(cheapest.getLenders().size()).isLessThan(100);
+        TestMarkets.assertSameQuotes(amount -> loan.calculate(whole, amount),
+                amount -> loan.calculate(selected, amount));
+    }
+
+    private static CheapestLenders select(Lender... lenders) {
+        CheapestLenders cheapest = new CheapestLenders(COVER);
+        Arrays.asList(lenders).forEach(cheapest);
+        return cheapest;
+    }
+}
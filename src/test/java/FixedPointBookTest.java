@@ -0,0 +1,56 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FixedPointBookTest {
+
+    @Test
+    public void runningTotalsInPenceAndMillionths() {
+        FixedPointBook book = new FixedPointBook(new MarketBook(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.075"), new BigDecimal("640")),
+                new Lender("Jane", new BigDecimal("0.069"), new BigDecimal("480.50")))));
+
+        assertThat(book.getCumulativePence(0)).isEqualTo(48050);
+        assertThat(book.getCumulativeWeighted(0)).isEqualTo(48050L * 69000);
+        assertThat(book.getTotalPence()).isEqualTo(112050);
+        assertThat(book.indexCovering(48051)).isEqualTo(1);
+        assertThat(book.indexCovering(112051)).isEqualTo(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateWithTooManyDecimals() {
+        new FixedPointBook(new MarketBook(Collections.singletonList(
+                new Lender("Bob", new BigDecimal("0.0750001"), new BigDecimal("640")))));
+    }
+
+    @Test
+    public void sameQuotesAsBigDecimalOnTestMarket() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+
+        assertSameQuotes(MarketBook.load(csvPath, new CSV()));
+    }
+
+    @Test
+    public void sameQuotesAsBigDecimalOnRandomMarket() {
+        Random random = new Random(7);
+        List<Lender> lenders = TestMarkets.randomLenders(2000, TestMarkets.millionths(random, 150_000),
+                TestMarkets.pence(random, 100_000));
+
+        assertSameQuotes(new MarketBook(lenders));
+    }
+
+    private static void assertSameQuotes(MarketBook book) {
+        FixedPointBook fixedPointBook = new FixedPointBook(book);
+        Loan loan = new Loan();
+        TestMarkets.assertSameQuotes(amount -> loan.calculate(book, amount),
+                amount -> loan.calculate(fixedPointBook, amount));
+    }
+}
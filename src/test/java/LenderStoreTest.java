@@ -0,0 +1,97 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LenderStoreTest {
+
+    @Test
+    public void sameLendersAsTheCsv() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        List<Lender> lenders = new CSV().extractLenders(csvPath);
+        LenderStore store = LenderStore.load(csvPath, new MappedCSV());
+
+        assertThat(store.size()).isEqualTo(lenders.size());
+        LenderStore.Cursor cursor = store.cursor();
+        for (Lender lender : lenders) {
+            assertThat(cursor.next()).isTrue();
+            assertThat(cursor.toLender()).isEqualTo(lender);
+            assertThat(cursor.getName()).isEqualTo(lender.getName());
+            assertThat(cursor.getRate()).isEqualTo(lender.getRate().movePointRight(6).longValueExact());
+        }
+        assertThat(cursor.next()).isFalse();
+        assertThat(cursor.next()).isFalse();
+    }
+
+    @Test
+    public void sameQuotesAsTheMarketBook() {
+        List<Lender> lenders = TestMarkets.randomLenders(new Random(22), 5000);
+        LenderStore store = build(lenders);
+        FixedPointBook expected = new FixedPointBook(new MarketBook(lenders));
+        FixedPointBook actual = store.toFixedPointBook();
+
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.getCumulativePence(i)).isEqualTo(expected.getCumulativePence(i));
+            assertThat(actual.getCumulativeWeighted(i)).isEqualTo(expected.getCumulativeWeighted(i));
+        }
+        int[] sorted = store.sortedByRate();
+        for (int i = 1; i < sorted.length; i++) {
+            assertThat(store.getRate(sorted[i - 1])).isLessThanOrEqualTo(store.getRate(sorted[i]));
+            if (store.getRate(sorted[i - 1]) == store.getRate(sorted[i])) {
+                assertThat(sorted[i - 1]).isLessThan(sorted[i]);
+            }
+        }
+    }
+
+    @Test
+    public void namesStoredOnce() {
+        List<Lender> lenders = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            lenders.add(new Lender(i % 3 == 0 ? "Jane" : "Lender" + i % 1000 + "é", new BigDecimal("0.07"),
+                    new BigDecimal("10")));
+        }
+        LenderStore store = build(lenders);
+
+        // Jane and the 1000 other names
+        assertThat(store.getNames().size()).isEqualTo(1001);
+        assertThat(store.getNameId(0)).isEqualTo(store.getNameId(3));
+        for (int i = 0; i < lenders.size(); i += 7) {
+            assertThat(store.getName(i)).isEqualTo(lenders.get(i).getName());
+        }
+    }
+
+    @Test
+    public void dictionaryGrows() {
+        NameDictionary names = new NameDictionary();
+        for (int i = 0; i < 100000; i++) {
+            assertThat(names.intern("Name" + i)).isEqualTo(i);
+        }
+        assertThat(names.intern("Name77777")).isEqualTo(77777);
+        assertThat(names.getName(99999)).isEqualTo("Name99999");
+        assertThat(names.intern("")).isEqualTo(100000);
+        assertThat(names.getName(100000)).isEmpty();
+    }
+
+    @Test
+    public void ratesAboveIntegerMillionths() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("A", new BigDecimal("3000"), new BigDecimal("1")));
+        lenders.add(new Lender("B", new BigDecimal("0.05"), new BigDecimal("1")));
+        lenders.add(new Lender("C", new BigDecimal("3000"), new BigDecimal("1")));
+
+        assertThat(build(lenders).sortedByRate()).containsExactly(1, 0, 2);
+    }
+
+    private static LenderStore build(List<Lender> lenders) {
+        LenderStore.Builder builder = new LenderStore.Builder();
+        lenders.forEach(builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,186 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LiveMarketTest {
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Test
+    public void quotesSameAsMarketBook() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        LiveMarket market = LiveMarket.load(csvPath, new CSV());
+        MarketBook book = MarketBook.load(csvPath, new CSV());
+
+        assertThat(market.getLenders()).containsExactlyElementsOf(book.getLenders());
+        assertSameQuotes(market, book);
+    }
+
+    @Test
+    public void randomChangesKeepQuotesSameAsRebuiltBook() {
+        Random random = new Random(3);
+        Supplier<BigDecimal> rates = TestMarkets.thousandths(random, 30);
+        Supplier<BigDecimal> availables = TestMarkets.pence(random, 20000);
+        LiveMarket market = new LiveMarket();
+        List<Lender> lenders = new ArrayList<>(TestMarkets.randomLenders(300, rates, availables));
+        lenders.forEach(market::add);
+        for (int change = 0; change < 300; change++) {
+            int index = random.nextInt(lenders.size());
+            Lender lender = lenders.get(index);
+            switch (random.nextInt(4)) {
+                case 0:
+                    Lender added = new Lender("New" + change, rates.get(), availables.get());
+                    lenders.add(added);
+                    market.add(added);
+                    break;
+                case 1:
+                    lenders.remove(index);
+                    assertThat(market.remove(lender.getName())).isTrue();
+                    break;
+                case 2:
+                    BigDecimal rate = rates.get();
+                    lenders.set(index, new Lender(lender.getName(), rate, lender.getAvailable()));
+                    market.changeRate(lender.getName(), rate);
+                    break;
+                default:
+                    BigDecimal available = availables.get();
+                    lenders.set(index, new Lender(lender.getName(), lender.getRate(), available));
+                    market.changeAvailable(lender.getName(), available);
+            }
+        }
+        MarketBook book = new MarketBook(lenders);
+
+        assertThat(market.size()).isEqualTo(lenders.size());
+        assertThat(market.getTotalAvailable()).isEqualByComparingTo(book.getTotalAvailable());
+        assertSameQuotes(market, book);
+    }
+
+    @Test
+    public void sameNameTwiceAsInACsvFile() throws IOException {
+        File csv = testFolder.newFile("market.csv");
+        append(csv, "Lender,Rate,Available\nBob,0.075,640\nJane,0.069,480\nBob,0.071,520\n");
+        LiveMarket market = LiveMarket.load(csv.getPath(), new CSV());
+
+        assertThat(market.size()).isEqualTo(3);
+        assertSameQuotes(market, MarketBook.load(csv.getPath(), new CSV()));
+        market.changeAvailable("Bob", new BigDecimal("100"));
+        assertThat(market.getTotalAvailable()).isEqualByComparingTo("680");
+        assertThat(market.remove("Bob")).isTrue();
+        assertThat(market.getLenders()).extracting(Lender::getName).containsExactly("Jane");
+    }
+
+    @Test
+    public void emptyMarket() {
+        assertThat(new Loan().calculate(new LiveMarket(), 1000)).isEmpty();
+    }
+
+    @Test
+    public void watcherAppliesAppendedDeltas() throws IOException {
+        LiveMarket market = new LiveMarket();
+        market.add(new Lender("Bob", new BigDecimal("0.075"), new BigDecimal("640")));
+        File deltas = testFolder.newFile("deltas.csv");
+
+        try (MarketWatcher watcher = new MarketWatcher(market, deltas.toPath())) {
+            append(deltas, "ADD,Jane,0.069,480\nAVAILABLE,Bob,1000\nRATE,Jane,0.05\nREM");
+            assertThat(watcher.applyNewDeltas()).isEqualTo(3);
+            assertThat(market.getTotalAvailable()).isEqualByComparingTo("1480");
+            assertThat(market.getLenders().get(0).getRate()).isEqualByComparingTo("0.05");
+
+            append(deltas, "OVE,Jane\n");
+            assertThat(watcher.applyNewDeltas()).isEqualTo(1);
+            assertThat(market.size()).isEqualTo(1);
+            assertThat(new Loan().calculate(market, 1000)).isNotEmpty();
+        }
+    }
+
+    @Test
+    public void watcherSkipsInvalidLine() throws IOException {
+        LiveMarket market = new LiveMarket();
+        File deltas = testFolder.newFile("deltas.csv");
+
+        try (MarketWatcher watcher = new MarketWatcher(market, deltas.toPath())) {
+            append(deltas, "ADD,Jane,0.069,480\nWRONG,Jane\nADD,Bob,0.075,640\n");
+            try {
+                watcher.applyNewDeltas();
+                throw new AssertionError("Invalid line applied");
+            } catch (IllegalArgumentException e) {
+                assertThat(market.size()).isEqualTo(1);
+            }
+            assertThat(watcher.applyNewDeltas()).isEqualTo(1);
+            assertThat(market.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void watcherReportsSkippedLinesAndReadsTruncatedFileAgain() throws IOException {
+        LiveMarket market = new LiveMarket();
+        File deltas = testFolder.newFile("deltas.csv");
+        List<String> problems = new ArrayList<>();
+
+        try (MarketWatcher watcher = new MarketWatcher(market, deltas.toPath(), problems::add)) {
+            append(deltas, "ADD,Jane,0.069,480\nADD,Bob,0.075,640\n");
+            assertThat(watcher.applyNewDeltas()).isEqualTo(2);
+            Files.write(deltas.toPath(), "REMOVE,Bob\n".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(watcher.applyNewDeltas()).isEqualTo(1);
+            assertThat(market.getLenders()).extracting(Lender::getName).containsExactly("Jane");
+            assertThat(problems).hasSize(1);
+            assertThat(problems.get(0)).contains("truncated");
+        }
+    }
+
+    @Test
+    public void watcherAppliesLinesSplitByReads() throws IOException {
+        LiveMarket market = new LiveMarket();
+        File deltas = testFolder.newFile("deltas.csv");
+        StringBuilder text = new StringBuilder();
+        int lines = 0;
+        while (text.length() < 3 * MarketWatcher.READ_SIZE) {
+            text.append("ADD,Lender").append(lines++).append(",0.07,10\n");
+        }
+
+        try (MarketWatcher watcher = new MarketWatcher(market, deltas.toPath())) {
+            append(deltas, text.toString());
+            assertThat(watcher.applyNewDeltas()).isEqualTo(lines);
+            assertThat(market.size()).isEqualTo(lines);
+            assertThat(market.getTotalAvailable()).isEqualByComparingTo(BigDecimal.valueOf(10L * lines));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void watcherOfInvalidDeltaFileNotCreated() throws IOException {
+        File deltas = testFolder.newFile("deltas.csv");
+        append(deltas, "WRONG,Jane\n");
+
+        new MarketWatcher(new LiveMarket(), deltas.toPath()).close();
+    }
+
+    private static void assertSameQuotes(LiveMarket market, MarketBook book) {
+        Loan loan = new Loan();
+        TestMarkets.assertSameQuotes(amount -> loan.calculate(book, amount), amount -> loan.calculate(market, amount));
+        for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += Loan.AMOUNT_STEP) {
+            BigDecimal amountP = BigDecimal.valueOf(amount);
+            // 0 when the market can not cover the amount
+            assertThat(market.lendersCovering(amountP)).as("Lenders of %d", amount)
+                    .isEqualTo(book.indexCovering(amountP) + 1);
+        }
+    }
+
+    private static void append(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
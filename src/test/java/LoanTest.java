@@ -6,9 +6,11 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -278,6 +280,48 @@ public class LoanTest {
         });
     }
 
+    @Test
+    public void calculateAllMatchesSingleQuotes() throws IOException {
+        MarketBook book = MarketBook.load(CSV, new CSV());
+        Loan loan = new Loan();
+
+        List<BorrowerInfo> ladder = loan.calculateAll(book);
+
+        assertThat(ladder).hasSize(14); // £1000 to £2300, the market has £2330
+        for (BorrowerInfo b : ladder) {
+            BorrowerInfo single = loan.calculate(book, b.getRequestedAmount().doubleValue()).get();
+            assertThat(b.getRequestedAmount()).isEqualTo(single.getRequestedAmount());
+            assertThat(b.getRate()).isEqualTo(single.getRate());
+            assertThat(b.getMonthlyRepayment()).isEqualTo(single.getMonthlyRepayment());
+            assertThat(b.getTotalRepayment()).isEqualTo(single.getTotalRepayment());
+        }
+    }
+
+    @Test
+    public void calculateAllNotEnoughLenders() throws IOException {
+        File tempCSV = getCSVFile("Bob,0.075,600");
+
+        assertThat(new Loan().calculateAll(MarketBook.load(tempCSV.getPath(), new CSV()))).isEmpty();
+    }
+
+    @Test
+    public void mathContextSetsThePrecisionOfTheQuote() throws IOException {
+        File tempCSV = getCSVFile("Bob,0.075,640", "Jane,0.069,480", "Fred,0.071,520");
+        MarketBook book = MarketBook.load(tempCSV.getPath(), new CSV());
+        Loan loan = new Loan();
+        Loan decimal32 = loan.withMathContext(MathContext.DECIMAL32);
+
+        BorrowerInfo precise = loan.calculate(book, 1000).get();
+        BorrowerInfo rough = decimal32.calculate(book, 1000).get();
+
+        assertThat(loan.withMathContext(MathContext.DECIMAL128)).isSameAs(loan);
+        assertThat(decimal32.calculateRate(new BigDecimal("1000.0"), book)).isEqualTo(rough.getRate());
+        assertThat(rough.getRate().precision()).isLessThanOrEqualTo(7);
+        assertThat(rough.getRate()).isEqualTo(precise.getRate().round(MathContext.DECIMAL32));
+        assertThat(rough.getMonthlyRepayment().setScale(2, RoundingMode.DOWN))
+                .isEqualTo(precise.getMonthlyRepayment().setScale(2, RoundingMode.DOWN));
+    }
+
     private File getCSVFile(String ... lines) throws IOException {
         StringBuilder appender = new StringBuilder("Lender,Rate,Available");
         appender.append(System.lineSeparator());
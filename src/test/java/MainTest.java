@@ -1,10 +1,19 @@
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -13,6 +22,8 @@ public class MainTest {
     private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
     private static final String CSV = "Market Data for Exercise - csv.csv";
 
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
     @Before
     public void setUpStreams() {
         System.setOut(new PrintStream(outContent));
@@ -36,6 +47,136 @@ public class MainTest {
         assertThat(outContent.toString()).contains("Total repayment: £1108.10");
     }
 
+    @Test
+    public void mainTerm() throws URISyntaxException {
+        String csv = LoanTest.class.getResource(CSV).toURI().getPath();
+        Main.main(new String[] {csv, "1000", "12"});
+
+        assertThat(outContent.toString()).contains("Rate: 7.0%");
+        assertThat(outContent.toString()).contains("Monthly repayment: £86.42");
+        assertThat(outContent.toString()).contains("Total repayment: £1037.15");
+    }
+
+    @Test
+    public void mainShardedMarket() throws URISyntaxException, IOException {
+        File csv = new File(LoanTest.class.getResource(CSV).toURI());
+        File copy = testFolder.newFile("copy.csv");
+        Files.copy(csv.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Main.main(new String[] {csv.getPath() + File.pathSeparator + copy.getPath(), "4000"});
+
+        assertThat(outContent.toString()).contains("Requested amount: £4000");
+    }
+
+    @Test
+    public void mainFileNameWithPathSeparator() throws URISyntaxException, IOException {
+        File csv = new File(LoanTest.class.getResource(CSV).toURI());
+        File market = new File(testFolder.getRoot(), "market" + File.pathSeparator + "2018.csv");
+        Files.copy(csv.toPath(), market.toPath());
+        Main.main(new String[] {market.getPath(), "1000"});
+
+        assertThat(outContent.toString()).contains("Rate: 7.0%");
+        assertThat(outContent.toString()).contains("Monthly repayment: £30.78");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mainInvalidTerm() throws URISyntaxException {
+        String csv = LoanTest.class.getResource(CSV).toURI().getPath();
+        Main.main(new String[] {csv, "1000", "13"});
+    }
+
+    @Test
+    public void mainAllAmounts() throws URISyntaxException {
+        String csv = LoanTest.class.getResource(CSV).toURI().getPath();
+        Main.main(new String[] {csv, Main.ALL_AMOUNTS});
+
+        assertThat(outContent.toString()).contains("Requested amount: £1000");
+        assertThat(outContent.toString()).contains("Monthly repayment: £30.78");
+        assertThat(outContent.toString()).contains("Requested amount: £2300");
+        assertThat(outContent.toString()).doesNotContain("Requested amount: £2400");
+        assertThat(outContent.toString()).contains("It is not possible to provide a quote from £2400 at that time.");
+    }
+
+    @Test
+    public void mainBatch() throws URISyntaxException {
+        String csv = LoanTest.class.getResource(CSV).toURI().getPath();
+        InputStream in = System.in;
+        System.setIn(new ByteArrayInputStream("1000\n2000\n".getBytes(StandardCharsets.UTF_8)));
+        try {
+            Main.main(new String[] {csv, Main.BATCH});
+        } finally {
+            System.setIn(in);
+        }
+
+        assertThat(outContent.toString()).contains(BatchQuoter.HEADER + "\n1000,36,7.0%,30.78,1108.10\n2000,36,");
+    }
+
+    @Test
+    public void mainBatchReadErrorOnStandardError() throws URISyntaxException {
+        String csv = LoanTest.class.getResource(CSV).toURI().getPath();
+        ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errContent));
+        try {
+            Main.main(new String[] {csv, Main.BATCH, csv + "Missing"});
+        } finally {
+            System.setErr(err);
+        }
+
+        assertThat(outContent.toString()).isEmpty();
+        assertThat(errContent.toString()).contains("It is not possible to provide a quote at that time");
+    }
+
+    @Test
+    public void mainBatchOfRateWithSevenDecimals() throws IOException {
+        File csv = testFolder.newFile("market.csv");
+        Files.write(csv.toPath(), "Lender,Rate,Available\nBob,0.0750001,640\nJane,0.069,480\n"
+                .getBytes(StandardCharsets.UTF_8));
+        File amounts = testFolder.newFile("amounts.txt");
+        Files.write(amounts.toPath(), "1000\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errContent));
+        try {
+            Main.main(new String[] {csv.getPath(), Main.BATCH, amounts.getPath()});
+        } finally {
+            System.setErr(err);
+        }
+
+        assertThat(outContent.toString()).isEmpty();
+        assertThat(errContent.toString()).contains("It is not possible to provide a quote at that time")
+                .contains("0.0750001");
+    }
+
+    @Test
+    public void serveRateWithSevenDecimals() throws IOException {
+        File csv = testFolder.newFile("market.csv");
+        Files.write(csv.toPath(), "Lender,Rate,Available\nBob,0.0750001,640\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errContent));
+        QuoteServer server;
+        try {
+            server = Main.serve(csv.getPath());
+        } finally {
+            System.setErr(err);
+        }
+
+        assertThat(server).isNull();
+        assertThat(outContent.toString()).isEmpty();
+        assertThat(errContent.toString()).contains("It is not possible to serve quotes of " + csv.getPath())
+                .contains("0.0750001");
+    }
+
+    @Test
+    public void mainSnapshotOfRateWithSevenDecimals() throws IOException {
+        File csv = testFolder.newFile("market.csv");
+        Files.write(csv.toPath(), "Lender,Rate,Available\nBob,0.0750001,640\n".getBytes(StandardCharsets.UTF_8));
+        Main.main(new String[] {csv.getPath(), Main.SNAPSHOT});
+
+        assertThat(outContent.toString()).contains("It is not possible to write the snapshot of " + csv.getPath())
+                .contains("rate");
+    }
+
     @Test
     public void mainInvalidCVS() throws URISyntaxException {
         String csv = LoanTest.class.getResource(CSV).toURI().getPath();
@@ -0,0 +1,70 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every {@link CSVTest} against {@link MappedCSV}.
+ */
+public class MappedCSVTest extends CSVTest {
+
+    @Override
+    CSV csv() {
+        return new MappedCSV();
+    }
+
+    @Test
+    public void extractLendersSameAsCSV() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+
+        assertSameLenders(new CSV().extractLenders(csvPath), csv().extractLenders(csvPath));
+    }
+
+    @Test
+    public void extractLendersNumberFormats() throws IOException {
+        File tempCSV = getCSVFile("Lender,Rate,Available", "Bob,.075,640.", "Jane,+0.069,4.8E2", "Fred,0.0710,-0",
+                "Mary,0.104,1234567890123456789012.5");
+
+        assertSameLenders(new CSV().extractLenders(tempCSV.getPath()), csv().extractLenders(tempCSV.getPath()));
+    }
+
+    @Test
+    public void extractLendersWindowsLineBreaksAndNoFinalLineBreak() throws IOException {
+        File tempCSV = testFolder.newFile("crlf.csv");
+        Files.write(tempCSV.toPath(), "Lender,Rate,Available\r\nBob,0.075,640\r\nJane,0.069,480".getBytes());
+
+        List<Lender> lenders = csv().extractLenders(tempCSV.getPath());
+
+        assertSameLenders(new CSV().extractLenders(tempCSV.getPath()), lenders);
+        assertThat(lenders).hasSize(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extractLendersLineTooLong() throws IOException {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            name.append('a');
+        }
+        File tempCSV = getCSVFile("Lender,Rate,Available", name + ",0.1,100");
+
+        csv().extractLenders(tempCSV.getPath());
+    }
+
+    static void assertSameLenders(List<Lender> expected, List<Lender> actual) {
+        assertThat(actual).hasSameSizeAs(expected);
+        // CSV returns a LinkedList
+        expected = new ArrayList<>(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isEqualTo(expected.get(i));
+            assertThat(actual.get(i).getRate()).isEqualTo(expected.get(i).getRate());
+            assertThat(actual.get(i).getAvailable()).isEqualTo(expected.get(i).getAvailable());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarketBookTest {
+
+    @Test
+    public void lendersSortedByRateKeepingFileOrderOnTies() {
+        Lender bob = new Lender("Bob", new BigDecimal("0.02"), new BigDecimal("100"));
+        Lender jane = new Lender("Jane", new BigDecimal("0.01"), new BigDecimal("200"));
+        Lender fred = new Lender("Fred", new BigDecimal("0.02"), new BigDecimal("300"));
+
+        MarketBook book = new MarketBook(Arrays.asList(bob, jane, fred));
+
+        assertThat(book.getLenders()).containsExactly(jane, bob, fred);
+        assertThat(book.getCumulativeAvailable(0)).isEqualByComparingTo("200");
+        assertThat(book.getCumulativeAvailable(1)).isEqualByComparingTo("300");
+        assertThat(book.getTotalAvailable()).isEqualByComparingTo("600");
+    }
+
+    @Test
+    public void indexCoveringFindsFirstRunningTotalReachingTheAmount() {
+        MarketBook book = new MarketBook(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.01"), new BigDecimal("200")),
+                new Lender("Jane", new BigDecimal("0.02"), new BigDecimal("300")),
+                new Lender("Fred", new BigDecimal("0.03"), new BigDecimal("500"))));
+
+        assertThat(book.indexCovering(new BigDecimal("100"))).isEqualTo(0);
+        assertThat(book.indexCovering(new BigDecimal("200"))).isEqualTo(0);
+        assertThat(book.indexCovering(new BigDecimal("200.01"))).isEqualTo(1);
+        assertThat(book.indexCovering(new BigDecimal("1000"))).isEqualTo(2);
+        assertThat(book.indexCovering(new BigDecimal("1000.01"))).isEqualTo(-1);
+        assertThat(book.getCumulativeWeighted(1)).isEqualByComparingTo("8"); // 200 * 0.01 + 300 * 0.02
+    }
+
+    @Test
+    public void emptyBook() {
+        MarketBook book = new MarketBook(Arrays.asList());
+
+        assertThat(book.size()).isZero();
+        assertThat(book.getTotalAvailable()).isEqualByComparingTo("0");
+        assertThat(book.indexCovering(BigDecimal.ONE)).isEqualTo(-1);
+    }
+
+    @Test
+    public void quotesAgainstBookMatchQuotesAgainstFile() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        MarketBook book = MarketBook.load(csvPath, new CSV());
+        Loan loan = new Loan();
+
+        for (int amount = 1000; amount <= 2300; amount += 100) {
+            Optional<BorrowerInfo> fromFile = loan.calculate(csvPath, amount, new CSV());
+            Optional<BorrowerInfo> fromBook = loan.calculate(book, amount);
+            assertThat(fromBook).hasValueSatisfying(b -> {
+                assertThat(b.getRate()).isEqualTo(fromFile.get().getRate());
+                assertThat(b.getMonthlyRepayment()).isEqualTo(fromFile.get().getMonthlyRepayment());
+                assertThat(b.getTotalRepayment()).isEqualTo(fromFile.get().getTotalRepayment());
+            });
+        }
+        assertThat(loan.calculate(book, 2400)).isEmpty();
+    }
+}
@@ -0,0 +1,109 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarketSimulationTest {
+
+    @Test
+    public void moneyIsConserved() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        MarketBook book = MarketBook.load(csvPath, new CSV());
+        long totalPence = book.getTotalAvailable().movePointRight(2).longValueExact();
+
+        MarketSimulation.Result result = new MarketSimulation(book).run(ForkJoinPool.commonPool(), 8, 10, 19);
+
+        assertThat(result.getScenarios()).isEqualTo(8);
+        assertThat(result.getFilled() + result.getRejected()).isEqualTo(80);
+        // £2330 serves at most two borrowers per scenario
+        assertThat(result.getFilled()).isBetween(1L, 16L);
+        assertThat(result.getFilledPence() + Math.round(result.getMeanRemainingPence() * 8)).isEqualTo(8 * totalPence);
+        assertThat(result.getMinRemainingPence()).isGreaterThanOrEqualTo(0).isLessThan(100000);
+        assertThat(result.getRatePercentile(0)).isGreaterThanOrEqualTo(69);
+        assertThat(result.getRatePercentile(100)).isLessThanOrEqualTo(104);
+    }
+
+    @Test
+    public void sameSeedSameResultsWithAnyThreads() {
+        MarketBook book = new MarketBook(TestMarkets.randomLenders(new Random(19), 300));
+        MarketSimulation simulation = new MarketSimulation(book);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            MarketSimulation.Result single = simulation.run(one, 50, 100, 7);
+            MarketSimulation.Result parallel = simulation.run(four, 50, 100, 7);
+
+            assertThat(parallel.getFilled()).isEqualTo(single.getFilled());
+            assertThat(parallel.getRejected()).isEqualTo(single.getRejected()).isPositive();
+            assertThat(parallel.getFilledPence()).isEqualTo(single.getFilledPence());
+            assertThat(parallel.getMeanRateTenths()).isEqualTo(single.getMeanRateTenths());
+            assertThat(parallel.getRatePercentile(99)).isEqualTo(single.getRatePercentile(99));
+            assertThat(parallel.getMinRemainingPence()).isEqualTo(single.getMinRemainingPence());
+            // Rates drift up as the cheapest lenders run out
+            assertThat(single.getRatePercentile(99)).isGreaterThan(single.getRatePercentile(1));
+            assertThat(simulation.run(one, 50, 100, 8).getFilledPence()).isNotEqualTo(single.getFilledPence());
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    @Test
+    public void oneLenderOneRate() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("Bob", new BigDecimal("0.05"), new BigDecimal("10000000")));
+
+        MarketSimulation.Result result = new MarketSimulation(new MarketBook(lenders))
+                .run(ForkJoinPool.commonPool(), 4, 100, 1);
+
+        assertThat(result.getFillRatio()).isEqualTo(1);
+        assertThat(result.getRatePercentile(50)).isEqualTo(50);
+        assertThat(result.getMeanRateTenths()).isEqualTo(50);
+    }
+
+    @Test
+    public void marketTooSmallRejectsEveryone() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("Bob", new BigDecimal("0.05"), new BigDecimal("999")));
+
+        MarketSimulation.Result result = new MarketSimulation(new MarketBook(lenders))
+                .run(ForkJoinPool.commonPool(), 3, 5, 1);
+
+        assertThat(result.getFillRatio()).isZero();
+        assertThat(result.getRejected()).isEqualTo(15);
+        assertThat(result.getRatePercentile(50)).isEqualTo(-1);
+        assertThat(result.getMeanRemainingPence()).isEqualTo(99900);
+        assertThat(result.toString()).contains("Rate p50: n/a, p90: n/a, p99: n/a");
+    }
+
+    @Test
+    public void borrowerQuotedAsLoanReservesIt() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("Bob", new BigDecimal("0.05"), new BigDecimal("1500")));
+        lenders.add(new Lender("Jane", new BigDecimal("0.09"), new BigDecimal("100000")));
+        Loan loan = new Loan();
+
+        // One borrower of a random amount, over Bob's £1500 or not
+        MarketSimulation.Result result = new MarketSimulation(loan, new MarketBook(lenders))
+                .run(ForkJoinPool.commonPool(), 1, 1, 3);
+
+        long amount = result.getFilledPence() / 100;
+        BigDecimal rate = loan.reserve(new ReservationBook(new MarketBook(lenders)), amount).get().getBorrowerInfo()
+                .getRate();
+        assertThat(result.getRatePercentile(50)).isEqualTo(rate.movePointRight(3).intValue());
+        assertThat(result.toString()).contains("Rate p50: " + rate.movePointRight(2).setScale(1, BigDecimal.ROUND_DOWN)
+                + "%");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scenariosMustBePositive() {
+        new MarketSimulation(new MarketBook(new ArrayList<>())).run(ForkJoinPool.commonPool(), 0, 1, 1);
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarketSnapshotTest {
+
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private String csvPath;
+
+    @Before
+    public void setUp() throws Exception {
+        File csv = testFolder.newFile("market.csv");
+        Files.copy(Paths.get(LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI()), csv.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        csvPath = csv.getPath();
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @After
+    public void tearDownStreams() {
+        outContent.reset();
+        System.setOut(System.out);
+    }
+
+    @Test
+    public void noSnapshot() throws IOException {
+        assertThat(MarketSnapshot.load(csvPath)).isEmpty();
+    }
+
+    @Test
+    public void snapshotColumnsSortedByRate() throws IOException {
+        MarketSnapshot.compile(csvPath, new CSV());
+
+        MarketSnapshot snapshot = MarketSnapshot.load(csvPath).get();
+
+        assertThat(snapshot.size()).isEqualTo(7);
+        assertThat(snapshot.getName(0)).isEqualTo("Jane");
+        assertThat(snapshot.getRate(0)).isEqualByComparingTo("0.069");
+        assertThat(snapshot.getAvailable(0)).isEqualByComparingTo("480");
+        assertThat(snapshot.getName(6)).isEqualTo("Mary");
+        assertThat(snapshot.getFixedPointBook().getTotalPence()).isEqualTo(233000);
+    }
+
+    @Test
+    public void snapshotQuotesSameAsCSV() throws IOException {
+        MarketSnapshot.compile(csvPath, new CSV());
+        FixedPointBook snapshotBook = MarketSnapshot.load(csvPath).get().getFixedPointBook();
+        MarketBook book = MarketBook.load(csvPath, new CSV());
+        Loan loan = new Loan();
+
+        for (int amount = 1000; amount <= 2400; amount += 100) {
+            Optional<BorrowerInfo> expected = loan.calculate(book, amount);
+            Optional<BorrowerInfo> actual = loan.calculate(snapshotBook, amount);
+            assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+            expected.ifPresent(b -> assertThat(actual.get().getMonthlyRepayment())
+                    .isEqualByComparingTo(b.getMonthlyRepayment()));
+        }
+    }
+
+    @Test
+    public void staleWhenCSVChanges() throws IOException {
+        MarketSnapshot.compile(csvPath, new CSV());
+        Files.write(Paths.get(csvPath), "Lender,Rate,Available\nBob,0.075,18000\n".getBytes());
+
+        assertThat(MarketSnapshot.load(csvPath)).isEmpty();
+    }
+
+    @Test
+    public void invalidWhenCorrupted() throws IOException {
+        File snapshotFile = MarketSnapshot.compile(csvPath, new CSV());
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(file.length() - 1);
+            file.write('X');
+        }
+
+        assertThat(MarketSnapshot.load(csvPath)).isEmpty();
+    }
+
+    @Test
+    public void mainUsesSnapshot() throws IOException {
+        Main.main(new String[] {csvPath, Main.SNAPSHOT});
+        assertThat(MarketSnapshot.snapshotFile(csvPath)).exists();
+        // Same size and last modified time: the snapshot is still taken as up to date, its quote proves it is used
+        byte[] csv = Files.readAllBytes(Paths.get(csvPath));
+        long lastModified = new File(csvPath).lastModified();
+        Files.write(Paths.get(csvPath), new String(csv).replace("Jane,0.069,480", "Jane,0.069,000").getBytes());
+        assertThat(new File(csvPath).setLastModified(lastModified)).isTrue();
+
+        Main.main(new String[] {csvPath, "1000"});
+
+        assertThat(outContent.toString()).contains("Requested amount: £1000");
+        assertThat(outContent.toString()).contains("Rate: 7.0%");
+        assertThat(outContent.toString()).contains("Monthly repayment: £30.78");
+        assertThat(outContent.toString()).contains("Total repayment: £1108.10");
+    }
+
+    @Test
+    public void mainFallsBackToCSVWhenSnapshotIsStale() throws IOException {
+        Main.main(new String[] {csvPath, Main.SNAPSHOT});
+        Files.write(Paths.get(csvPath), "Lender,Rate,Available\nBob,0.075,600\n".getBytes());
+
+        Main.main(new String[] {csvPath, "1000"});
+
+        assertThat(outContent.toString()).contains("It is not possible to provide a quote at that time.");
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every {@link MappedCSVTest} against {@link ParallelCSV}, plus files big enough to be split in chunks.
+ */
+public class ParallelCSVTest extends MappedCSVTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Override
+    CSV csv() {
+        return new ParallelCSV(POOL);
+    }
+
+    @Test
+    public void extractLendersInChunksSameAsSequential() throws IOException {
+        File tempCSV = getBigCSVFile(200_000, null);
+
+        List<Lender> actual = csv().extractLenders(tempCSV.getPath());
+
+        assertThat(actual).hasSize(200_000);
+        // CSV may stop early on its memory check with this many lenders, MappedCSV is compared to it in MappedCSVTest
+        assertSameLenders(new MappedCSV().extractLenders(tempCSV.getPath()), actual);
+    }
+
+    @Test
+    public void extractLendersInChunksRejectsFirstInvalidLine() throws IOException {
+        File tempCSV = getBigCSVFile(200_000, "Caldo,-0.1,600");
+
+        try {
+            csv().extractLenders(tempCSV.getPath());
+            throw new AssertionError("Negative rate accepted");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("Caldo").hasMessageContaining("rate");
+        }
+    }
+
+    @Test
+    public void consumerGetsLendersBeforeTheEndOfTheFileIsRead() throws IOException {
+        // Far more chunks than the 4 a single thread reads ahead, the last line invalid
+        StringBuilder appender = new StringBuilder("Lender,Rate,Available\n");
+        for (int i = 0; i < 400_000; i++) {
+            appender.append("Lender").append(i).append(",0.0").append(i % 100).append(',').append(i % 2000)
+                    .append('\n');
+        }
+        appender.append("Last,0.1,-600\n");
+        File tempCSV = testFolder.newFile("big.csv");
+        Files.write(tempCSV.toPath(), appender.toString().getBytes());
+        ForkJoinPool single = new ForkJoinPool(1);
+        List<Lender> seen = new ArrayList<>();
+
+        try {
+            new ParallelCSV(single).readLenders(tempCSV.getPath(), lender -> {
+                seen.add(lender);
+                if (seen.size() == 1000) {
+                    throw new IllegalStateException("Enough lenders");
+                }
+            });
+            throw new AssertionError("Invalid line or consumer error ignored");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("Enough lenders");
+        } finally {
+            single.shutdown();
+        }
+        assertThat(seen.get(999).getName()).isEqualTo("Lender999");
+    }
+
+    // invalidLine, when not null, replaces a line at 1/3 of the file and a later one is made invalid too
+    private File getBigCSVFile(int lines, String invalidLine) throws IOException {
+        StringBuilder appender = new StringBuilder("Lender,Rate,Available");
+        appender.append(System.lineSeparator());
+        for (int i = 0; i < lines; i++) {
+            if (invalidLine != null && i == lines / 3) {
+                appender.append(invalidLine);
+            } else if (invalidLine != null && i == lines * 2 / 3) {
+                appender.append("Later,0.1,-600");
+            } else {
+                appender.append("Lender").append(i).append(",0.0").append(i % 100).append(',').append(i % 2000);
+            }
+            appender.append(System.lineSeparator());
+        }
+        File tempCSV = testFolder.newFile("big.csv");
+        Files.write(tempCSV.toPath(), appender.toString().getBytes());
+        return tempCSV;
+    }
+}
@@ -0,0 +1,187 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.MathContext;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuoteCacheTest {
+
+    @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Test
+    public void sameQuoteForTheSameVersionAmountAndTerm() throws IOException, URISyntaxException {
+        File market = copyOfSample();
+        QuoteCache cache = new QuoteCache(new CSV(), 10);
+        Loan loan = new Loan();
+
+        Optional<BorrowerInfo> first = cache.calculate(loan, market.getPath(), 1000);
+        Optional<BorrowerInfo> second = cache.calculate(loan, market.getPath(), 1000);
+        Optional<BorrowerInfo> longer = cache.calculate(loan.withTerm(48), market.getPath(), 1000);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.get()).isEqualToComparingFieldByField(loan.calculate(market.getPath(), 1000, new CSV()).get());
+        assertThat(longer.get().getMonthlyRepayment()).isLessThan(first.get().getMonthlyRepayment());
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getHitRatio()).isEqualTo(1.0 / 3);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void quotesOfEachPrecisionCachedApart() throws IOException, URISyntaxException {
+        File market = copyOfSample();
+        QuoteCache cache = new QuoteCache(new CSV(), 10);
+        Loan loan = new Loan();
+        Loan decimal32 = loan.withMathContext(MathContext.DECIMAL32);
+
+        Optional<BorrowerInfo> precise = cache.calculate(loan, market.getPath(), 1000);
+        Optional<BorrowerInfo> rounded = cache.calculate(decimal32, market.getPath(), 1000);
+
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getHits()).isZero();
+        assertThat(rounded.get()).isEqualToComparingFieldByField(
+                decimal32.calculate(market.getPath(), 1000, new CSV()).get());
+        assertThat(rounded.get().getMonthlyRepayment()).isNotEqualTo(precise.get().getMonthlyRepayment());
+        assertThat(cache.calculate(decimal32, market.getPath(), 1000)).isSameAs(rounded);
+    }
+
+    @Test
+    public void changedMarketInvalidatesItsQuotes() throws IOException, URISyntaxException {
+        File market = copyOfSample();
+        QuoteCache cache = new QuoteCache(new CSV(), 10);
+        Loan loan = new Loan();
+        assertThat(cache.calculate(loan, market.getPath(), 1000)).isPresent();
+        cache.calculate(loan, market.getPath(), 1100);
+        QuoteCache.MarketVersion before = cache.version(market.toPath().toAbsolutePath());
+
+        Files.write(market.toPath(), "Lender,Rate,Available\nBob,0.075,640\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(market.toPath(), FileTime.fromMillis(before.getLastModified() + 2000));
+
+        assertThat(cache.calculate(loan, market.getPath(), 1000)).isEmpty();
+        assertThat(cache.getInvalidations()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(0);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.version(market.toPath().toAbsolutePath()).getHash()).isNotEqualTo(before.getHash());
+    }
+
+    @Test
+    public void touchedMarketIsHashedAgain() throws IOException, URISyntaxException {
+        File market = copyOfSample();
+        QuoteCache cache = new QuoteCache(new CSV(), 10);
+        cache.calculate(new Loan(), market.getPath(), 1000);
+        QuoteCache.MarketVersion before = cache.version(market.toPath().toAbsolutePath());
+
+        Files.setLastModifiedTime(market.toPath(), FileTime.fromMillis(before.getLastModified() + 2000));
+        QuoteCache.MarketVersion after = cache.version(market.toPath().toAbsolutePath());
+
+        assertThat(after).isNotEqualTo(before);
+        assertThat(after.getHash()).isEqualTo(before.getHash());
+        assertThat(after.getSize()).isEqualTo(before.getSize()).isEqualTo(market.length());
+        assertThat(cache.version(market.toPath().toAbsolutePath())).isSameAs(after);
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException, URISyntaxException {
+        File market = copyOfSample();
+        QuoteCache cache = new QuoteCache(new CSV(), 2);
+        Loan loan = new Loan();
+        cache.calculate(loan, market.getPath(), 1000);
+        cache.calculate(loan, market.getPath(), 1100);
+        cache.calculate(loan, market.getPath(), 1000);
+        cache.calculate(loan, market.getPath(), 1200);
+
+        cache.calculate(loan, market.getPath(), 1000);
+        assertThat(cache.getHits()).isEqualTo(2);
+        cache.calculate(loan, market.getPath(), 1100);
+        assertThat(cache.getMisses()).isEqualTo(4);
+        assertThat(cache.getEvictions()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void unreadableMarketIsNotCached() {
+        QuoteCache cache = new QuoteCache(new CSV(), 10);
+        String missing = new File(testFolder.getRoot(), "missing.csv").getPath();
+
+        assertThat(cache.calculate(new Loan(), missing, 1000)).isEmpty();
+        assertThat(cache.calculate(new Loan(), missing, 1000)).isEmpty();
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+        assertThatThrownBy(() -> cache.calculate(new Loan(), missing, 1050))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new QuoteCache(new CSV(), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void failedReadIsNotCached() throws IOException, URISyntaxException {
+        File market = copyOfSample();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        QuoteCache cache = new QuoteCache(new CSV() {
+            @Override
+            void readLenders(String filePath, Consumer<Lender> consumer) throws IOException {
+                if (failing.get()) {
+                    throw new IOException("Disk error");
+                }
+                super.readLenders(filePath, consumer);
+            }
+        }, 10);
+
+        assertThat(cache.calculate(new Loan(), market.getPath(), 1000)).isEmpty();
+        assertThat(cache.size()).isZero();
+        failing.set(false);
+        assertThat(cache.calculate(new Loan(), market.getPath(), 1000)).isPresent();
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentQuotesShareTheCache() throws Exception {
+        File market = copyOfSample();
+        QuoteCache cache = new QuoteCache(new CSV(), QuoteCache.DEFAULT_SIZE);
+        Loan loan = new Loan();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<BorrowerInfo>>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int amount = 1000 + 100 * (i % 5);
+                results.add(executor.submit(() -> cache.calculate(loan, market.getPath(), amount)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get().get().getRequestedAmount().intValue()).isEqualTo(1000 + 100 * (i % 5));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(cache.size()).isEqualTo(5);
+        assertThat(cache.getHits() + cache.getMisses()).isEqualTo(200);
+        assertThat(cache.getHits()).isGreaterThanOrEqualTo(200 - 4 * 5);
+    }
+
+    private File copyOfSample() throws IOException, URISyntaxException {
+        File market = testFolder.newFile();
+        Files.copy(Paths.get(LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI()),
+                market.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return market;
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class QuoteMetricsTest {
+
+    private static final String CSV = "Market Data for Exercise - csv.csv";
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMean()).isEqualTo(500500.0);
+        assertThat((double) histogram.getPercentile(50)).isCloseTo(500000, within(500000 * 0.125));
+        assertThat((double) histogram.getPercentile(99)).isCloseTo(990000, within(990000 * 0.125));
+        assertThat(histogram.getPercentile(100)).isGreaterThanOrEqualTo(1000000);
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertThat(LatencyHistogram.highestValue(bucket)).isGreaterThanOrEqualTo(value);
+            if (bucket > 0) {
+                assertThat(LatencyHistogram.highestValue(bucket - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void countsServedAndRejectedQuotes() throws URISyntaxException {
+        String csvPath = LoanTest.class.getResource(CSV).toURI().getPath();
+        QuoteMetrics metrics = new QuoteMetrics();
+        Loan loan = new Loan(new AnnuityCache(AnnuityCache.DEFAULT_SIZE), metrics);
+
+        assertThat(loan.calculate(csvPath, 1000, new CSV())).isNotEmpty();
+        assertThat(loan.calculate(csvPath, 15000, new CSV())).isEmpty();
+
+        assertThat(metrics.getServed()).isEqualTo(1);
+        assertThat(metrics.getRejected()).isEqualTo(1);
+        assertThat(metrics.getHistogram(QuoteMetrics.Stage.READ).getCount()).isEqualTo(2);
+        assertThat(metrics.getHistogram(QuoteMetrics.Stage.SORT).getCount()).isEqualTo(2);
+        assertThat(metrics.getHistogram(QuoteMetrics.Stage.RATE).getCount()).isEqualTo(1);
+        assertThat(metrics.getHistogram(QuoteMetrics.Stage.ANNUITY).getCount()).isEqualTo(1);
+        assertThat(metrics.getHistogram(QuoteMetrics.Stage.QUOTE).getCount()).isEqualTo(2);
+        // Jane and Fred cover £1000 of the sample market
+        assertThat(metrics.getLendersScanned().getPercentile(100)).isEqualTo(2);
+        assertThat(metrics.toText()).contains("served=1 rejected=1");
+        assertThat(metrics.toJson()).contains("\"served\":1,\"rejected\":1");
+    }
+
+    @Test
+    public void everyMarketRecordsTheSameStages() throws URISyntaxException, IOException {
+        String csvPath = LoanTest.class.getResource(CSV).toURI().getPath();
+        MarketBook book = MarketBook.load(csvPath, new CSV());
+        List<QuoteMetrics> all = new ArrayList<>();
+        for (int market = 0; market < 4; market++) {
+            QuoteMetrics metrics = new QuoteMetrics();
+            Loan loan = new Loan(new AnnuityCache(AnnuityCache.DEFAULT_SIZE), metrics);
+            for (int amount : new int[] {1000, 2000, 15000}) {
+                switch (market) {
+                    case 0:
+                        loan.calculate(new FixedPointBook(book), amount);
+                        break;
+                    case 1:
+                        loan.calculate(LiveMarket.load(csvPath, new CSV()), amount);
+                        break;
+                    case 2:
+                        loan.calculate(new ShardedMarket(Arrays.asList(book, new MarketBook(new ArrayList<>()))),
+                                amount);
+                        break;
+                    default:
+                        loan.calculateRounded(new FixedPointBook(book), amount);
+                }
+            }
+            all.add(metrics);
+        }
+
+        for (QuoteMetrics metrics : all) {
+            assertThat(metrics.getServed()).isEqualTo(2);
+            assertThat(metrics.getRejected()).isEqualTo(1);
+            assertThat(metrics.getHistogram(QuoteMetrics.Stage.RATE).getCount()).isEqualTo(2);
+            assertThat(metrics.getHistogram(QuoteMetrics.Stage.ANNUITY).getCount()).isEqualTo(2);
+            assertThat(metrics.getHistogram(QuoteMetrics.Stage.QUOTE).getCount()).isEqualTo(3);
+            // Jane and Fred cover £1000, the six cheapest lenders £2000
+            assertThat(metrics.getLendersScanned().getPercentile(0)).isEqualTo(2);
+            assertThat(metrics.getLendersScanned().getPercentile(100)).isEqualTo(6);
+        }
+    }
+
+    @Test
+    public void disabledRecordsNothing() throws URISyntaxException {
+        String csvPath = LoanTest.class.getResource(CSV).toURI().getPath();
+
+        assertThat(new Loan().calculate(csvPath, 1000, new CSV())).isNotEmpty();
+
+        assertThat(QuoteMetrics.DISABLED.getServed()).isZero();
+        assertThat(QuoteMetrics.DISABLED.getHistogram(QuoteMetrics.Stage.QUOTE).getCount()).isZero();
+    }
+
+    @Test
+    public void dumpsPeriodically() throws InterruptedException, IOException {
+        BlockingQueue<String> dumps = new ArrayBlockingQueue<>(10);
+        Closeable dumping = new QuoteMetrics().dumpEvery(10, TimeUnit.MILLISECONDS, true, dumps::offer);
+        try {
+            assertThat(dumps.poll(5, TimeUnit.SECONDS)).startsWith("{\"stages\":{\"READ\":{\"count\":0");
+        } finally {
+            dumping.close();
+        }
+    }
+}
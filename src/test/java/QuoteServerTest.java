@@ -0,0 +1,101 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuoteServerTest {
+
+    private QuoteServer server;
+
+    @Before
+    public void start() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        server = new QuoteServer(new Loan(), new FixedPointBook(MarketBook.load(csvPath, new CSV())),
+                new InetSocketAddress("localhost", 0), 2);
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void quote() throws IOException {
+        HttpURLConnection connection = get("/quote?amount=1000");
+
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        String body = read(connection.getInputStream());
+        assertThat(body).startsWith("{\"requestedAmount\":1000.0,\"termMonths\":36,\"rate\":0.07004");
+        assertThat(body).contains("\"monthlyRepayment\":30.78").contains("\"totalRepayment\":1108.1");
+    }
+
+    @Test
+    public void quoteTerm() throws IOException {
+        HttpURLConnection connection = get("/quote?amount=1000&term=12");
+
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(read(connection.getInputStream())).contains("\"termMonths\":12")
+                .contains("\"monthlyRepayment\":86.42");
+        assertThat(get("/quote?amount=1000&term=13").getResponseCode()).isEqualTo(400);
+        assertThat(get("/quote?amount=1000&term=x").getResponseCode()).isEqualTo(400);
+    }
+
+    @Test
+    public void invalidAmounts() throws IOException {
+        assertThat(get("/quote?amount=1050").getResponseCode()).isEqualTo(400);
+        assertThat(get("/quote?amount=20000").getResponseCode()).isEqualTo(400);
+        assertThat(get("/quote?amount=abc").getResponseCode()).isEqualTo(400);
+        assertThat(get("/quote").getResponseCode()).isEqualTo(400);
+    }
+
+    @Test
+    public void marketCanNotCover() throws IOException {
+        HttpURLConnection connection = get("/quote?amount=15000");
+
+        assertThat(connection.getResponseCode()).isEqualTo(404);
+        assertThat(read(connection.getErrorStream())).contains("It is not possible to provide a quote at that time.");
+    }
+
+    @Test
+    public void onlyGet() throws IOException {
+        HttpURLConnection connection = get("/quote?amount=1000");
+        connection.setRequestMethod("DELETE");
+
+        assertThat(connection.getResponseCode()).isEqualTo(405);
+    }
+
+    @Test
+    public void parameter() {
+        assertThat(QuoteServer.parameter("a=1&amount=1%30000", "amount")).isEqualTo("10000");
+        assertThat(QuoteServer.parameter("a=1", "amount")).isNull();
+        assertThat(QuoteServer.parameter(null, "amount")).isNull();
+    }
+
+    private URL baseUrl() throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private HttpURLConnection get(String path) throws IOException {
+        return (HttpURLConnection) new URL(baseUrl(), path).openConnection();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
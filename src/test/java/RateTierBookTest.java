@@ -0,0 +1,100 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateTierBookTest {
+
+    private final Loan loan = new Loan();
+
+    @Test
+    public void sameQuotesAsTheBook() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        RateTierBook tiers = RateTierBook.load(csvPath, new MappedCSV(), false);
+
+        assertThat(tiers.getTotalPence()).isEqualTo(233000);
+        assertThat(loan.calculate(tiers, 1000).get().getRate()).isEqualByComparingTo(
+                loan.calculate(MarketBook.load(csvPath, new CSV()), 1000).get().getRate());
+        assertThat(loan.calculate(tiers, 15000)).isEmpty();
+    }
+
+    @Test
+    public void randomMarketsWithFewRates() {
+        Random random = new Random(21);
+        for (int market = 0; market < 20; market++) {
+            int rates = 1 + random.nextInt(30);
+            // Some lenders without money, some whose money alone covers the biggest loan
+            Supplier<BigDecimal> available = TestMarkets.someEmpty(random, () -> BigDecimal.valueOf(
+                    1 + random.nextInt(random.nextInt(50) == 0 ? 2000000 : 200000), 2));
+            List<Lender> lenders = TestMarkets.randomLenders(20 + random.nextInt(3000),
+                    TestMarkets.thousandths(random, rates), available);
+            RateTierBook tiers = build(lenders, false);
+            MarketBook book = new MarketBook(lenders);
+
+            assertThat(tiers.tiers()).isLessThanOrEqualTo(rates);
+            TestMarkets.assertSameQuotes(amount -> loan.calculate(book, amount),
+                    amount -> loan.calculate(tiers, amount));
+            for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += Loan.AMOUNT_STEP) {
+                // 0 when the market can not cover the amount
+                assertThat(tiers.lendersCovering(amount * 100L)).as("Lenders of %d", amount)
+                        .isEqualTo(book.indexCovering(new BigDecimal(amount)) + 1);
+            }
+        }
+    }
+
+    @Test
+    public void keepsOnlyReachableLenders() {
+        List<Lender> lenders = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(50 + i % 5, 3), new BigDecimal("500")));
+        }
+        RateTierBook tiers = build(lenders, false);
+
+        assertThat(tiers.tiers()).isEqualTo(5);
+        assertThat(tiers.getLenders(4)).isEqualTo(20000);
+        assertThat(tiers.getAvailablePence(4)).isEqualTo(20000 * 50000L);
+        // £15000 is 30 lenders of the cheapest tier, later tiers are never reached
+        assertThat(tiers.getKeptLenders()).isEqualTo(30);
+        assertThat(loan.calculate(tiers, 15000).get().getRate()).isEqualByComparingTo("0.05");
+    }
+
+    @Test
+    public void allocationsFromRows() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("A", new BigDecimal("0.07"), new BigDecimal("600")));
+        lenders.add(new Lender("B", new BigDecimal("0.06"), new BigDecimal("300")));
+        lenders.add(new Lender("C", new BigDecimal("0.070"), new BigDecimal("0")));
+        lenders.add(new Lender("D", new BigDecimal("0.07"), new BigDecimal("900")));
+        RateTierBook tiers = build(lenders, true);
+
+        List<RateTierBook.Allocation> allocations = tiers.allocations(100000);
+
+        // B, A, C and D, D with all its money
+        assertThat(allocations).extracting(RateTierBook.Allocation::getRow).containsExactly(1, 0, 2, 3);
+        assertThat(allocations).extracting(RateTierBook.Allocation::getAmount).containsExactly(
+                new BigDecimal("300.00"), new BigDecimal("600.00"), new BigDecimal("0.00"), new BigDecimal("900.00"));
+        assertThat(tiers.weightedCovering(100000)).isEqualTo(1800 * 100 * 70000L - 300 * 100 * 10000L);
+        assertThat(tiers.allocations(180001)).isEmpty();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void allocationsNeedRows() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("A", new BigDecimal("0.07"), new BigDecimal("1000")));
+
+        build(lenders, false).allocations(100000);
+    }
+
+    private static RateTierBook build(List<Lender> lenders, boolean keepRows) {
+        RateTierBook.Builder builder = new RateTierBook.Builder(Loan.MAX_AMOUNT * 100L, keepRows);
+        lenders.forEach(builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,177 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReservationBookTest {
+
+    private final Loan loan = new Loan();
+
+    @Test
+    public void reserveTakesCheapestFirst() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        MarketBook market = MarketBook.load(csvPath, new CSV());
+        ReservationBook book = new ReservationBook(market);
+        long total = book.getTotalRemainingPence();
+
+        Reservation reservation = loan.reserve(book, 1000).get();
+
+        List<ReservationBook.Allocation> allocations = reservation.getAllocations();
+        long reserved = 0;
+        for (int i = 0; i < allocations.size(); i++) {
+            assertThat(allocations.get(i).getLender()).isSameAs(market.getLenders().get(i));
+            reserved += allocations.get(i).getPence();
+        }
+        assertThat(reserved).isEqualTo(100000);
+        assertThat(book.getTotalRemainingPence()).isEqualTo(total - 100000);
+        assertThat(reservation.getBorrowerInfo().getRequestedAmount()).isEqualByComparingTo("1000");
+        // Only the money taken from the last lender is weighted, not all of it as in a quote
+        assertThat(reservation.getBorrowerInfo().getRate())
+                .isLessThanOrEqualTo(loan.calculate(market, 1000).get().getRate());
+    }
+
+    @Test
+    public void secondBorrowerGetsTheNextLenders() {
+        ReservationBook book = new ReservationBook(new MarketBook(
+                lenders("0.05", "600", "0.06", "600", "0.07", "800")));
+
+        Reservation first = loan.reserve(book, 1000).get();
+        Reservation second = loan.reserve(book, 1000).get();
+
+        assertThat(first.getBorrowerInfo().getRate()).isEqualByComparingTo("0.054");
+        assertThat(second.getAllocations()).extracting(ReservationBook.Allocation::getAmount)
+                .containsExactly(new BigDecimal("200.00"), new BigDecimal("800.00"));
+        assertThat(loan.reserve(book, 1000)).isEmpty();
+        assertThat(book.getTotalRemainingPence()).isZero();
+    }
+
+    @Test
+    public void notEnoughMoneyTakesNothing() {
+        ReservationBook book = new ReservationBook(new MarketBook(lenders("0.05", "600", "0.06", "300")));
+
+        assertThat(loan.reserve(book, 1000)).isEmpty();
+        assertThat(book.getRemainingPence(0)).isEqualTo(60000);
+        assertThat(book.getRemainingPence(1)).isEqualTo(30000);
+    }
+
+    @Test
+    public void copyKeepsTheMoneyLeftAndDrawsDownOnItsOwn() {
+        ReservationBook book = new ReservationBook(new MarketBook(
+                lenders("0.05", "600", "0.06", "600", "0.07", "800")));
+        loan.reserve(book, 1000).get();
+
+        ReservationBook copy = new ReservationBook(book);
+        Reservation second = loan.reserve(copy, 1000).get();
+
+        assertThat(second.getAllocations()).extracting(ReservationBook.Allocation::getAmount)
+                .containsExactly(new BigDecimal("200.00"), new BigDecimal("800.00"));
+        assertThat(copy.getTotalRemainingPence()).isZero();
+        assertThat(book.getTotalRemainingPence()).isEqualTo(100000);
+    }
+
+    @Test
+    public void releaseGivesMoneyBackOnce() {
+        ReservationBook book = new ReservationBook(new MarketBook(lenders("0.05", "600", "0.06", "600")));
+        Reservation reservation = loan.reserve(book, 1000).get();
+
+        assertThat(loan.release(book, reservation)).isTrue();
+        assertThat(loan.release(book, reservation)).isFalse();
+        assertThat(book.getTotalRemainingPence()).isEqualTo(120000);
+        assertThat(loan.reserve(book, 1000).get().getBorrowerInfo().getRate()).isEqualByComparingTo("0.054");
+    }
+
+    @Test
+    public void concurrentBorrowersConserveMoney() throws Exception {
+        ReservationBook book = new ReservationBook(new MarketBook(TestMarkets.randomLenders(new Random(14), 200)));
+        long total = book.getTotalRemainingPence();
+        long[] initial = new long[book.size()];
+        for (int i = 0; i < book.size(); i++) {
+            initial[i] = book.getRemainingPence(i);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<Reservation>>> borrowers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            borrowers.add(pool.submit(() -> {
+                Random borrowerRandom = new Random(seed);
+                List<Reservation> held = new ArrayList<>();
+                for (int i = 0; i < 5000; i++) {
+                    if (!held.isEmpty() && borrowerRandom.nextInt(3) == 0) {
+                        loan.release(book, held.remove(borrowerRandom.nextInt(held.size())));
+                        continue;
+                    }
+                    int amount = Loan.MIN_AMOUNT + borrowerRandom.nextInt(141) * Loan.AMOUNT_STEP;
+                    Optional<Reservation> reservation = loan.reserve(book, amount);
+                    if (reservation.isPresent()) {
+                        assertThat(reserved(reservation.get())).isEqualTo(amount * 100L);
+                        held.add(reservation.get());
+                    }
+                }
+                return held;
+            }));
+        }
+        List<Reservation> held = new ArrayList<>();
+        for (Future<List<Reservation>> borrower : borrowers) {
+            held.addAll(borrower.get());
+        }
+        pool.shutdown();
+
+        long heldPence = 0;
+        long[] heldByLender = new long[book.size()];
+        for (Reservation reservation : held) {
+            heldPence += reserved(reservation);
+            for (ReservationBook.Allocation allocation : reservation.getAllocations()) {
+                heldByLender[indexOf(book, allocation)] +=
+                        allocation.getPence();
+            }
+        }
+        assertThat(book.getTotalRemainingPence() + heldPence).isEqualTo(total);
+        for (int i = 0; i < book.size(); i++) {
+            assertThat(book.getRemainingPence(i) + heldByLender[i]).isEqualTo(initial[i]);
+        }
+        for (Reservation reservation : held) {
+            loan.release(book, reservation);
+        }
+        for (int i = 0; i < book.size(); i++) {
+            assertThat(book.getRemainingPence(i)).isEqualTo(initial[i]);
+        }
+    }
+
+    private static int indexOf(ReservationBook book, ReservationBook.Allocation allocation) {
+        for (int i = 0; i < book.size(); i++) {
+            if (book.getLender(i) == allocation.getLender()) {
+                return i;
+            }
+        }
+        throw new AssertionError("Lender not in book: " + allocation.getLender().getName());
+    }
+
+    private static long reserved(Reservation reservation) {
+        long pence = 0;
+        for (ReservationBook.Allocation allocation : reservation.getAllocations()) {
+            pence += allocation.getPence();
+        }
+        return pence;
+    }
+
+    // Rate and available of every lender, in pairs
+    private static List<Lender> lenders(String... ratesAndAvailable) {
+        List<Lender> lenders = new ArrayList<>();
+        for (int i = 0; i < ratesAndAvailable.length; i += 2) {
+            lenders.add(new Lender("Lender" + i, new BigDecimal(ratesAndAvailable[i]),
+                    new BigDecimal(ratesAndAvailable[i + 1])));
+        }
+        return lenders;
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoundedQuoteTest {
+
+    @Test
+    public void doublePathSameAsBigDecimalOnRandomMarkets() {
+        Random random = new Random(18);
+        long quotes = 0;
+        long exact = 0;
+        for (int market = 0; market < 20; market++) {
+            FixedPointBook book = new FixedPointBook(new MarketBook(randomLenders(random, 5000, market % 2 == 0)));
+            for (int term : Loan.TERMS_MONTHS) {
+                Loan loan = new Loan().withTerm(term);
+                for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += Loan.AMOUNT_STEP) {
+                    Optional<RoundedQuote> expected = loan.calculate(book, amount)
+                            .map(borrowerInfo -> RoundedQuote.of(borrowerInfo, term));
+                    Optional<RoundedQuote> actual = loan.calculateRounded(book, amount);
+                    assertThat(actual).as("market %d, term %d, amount %d", market, term, amount).isEqualTo(expected);
+                    quotes++;
+                    exact += actual.isPresent() && actual.get().isExact() ? 1 : 0;
+                }
+            }
+        }
+        // The BigDecimal quote is only a fallback
+        assertThat(exact).isLessThan(quotes / 100);
+    }
+
+    @Test
+    public void zeroRateFallsBackToBigDecimal() {
+        List<Lender> lenders = new ArrayList<>();
+        lenders.add(new Lender("Free", BigDecimal.ZERO, new BigDecimal("20000")));
+        Loan loan = new Loan().withTerm(12);
+
+        RoundedQuote quote = loan.calculateRounded(new FixedPointBook(new MarketBook(lenders)), 1000).get();
+
+        assertThat(quote.isExact()).isTrue();
+        // 1000 / 12 at DECIMAL128 times 12 is just below 1000
+        assertThat(quote.toString()).isEqualTo("1000,12,0.0%,83.33,999.99");
+    }
+
+    @Test
+    public void sampleMarket() throws Exception {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        FixedPointBook book = new FixedPointBook(MarketBook.load(csvPath, new CSV()));
+
+        assertThat(new Loan().calculateRounded(book, 1000).get().toString()).isEqualTo("1000,36,7.0%,30.78,1108.10");
+        assertThat(new Loan().calculateRounded(book, 15000)).isEmpty();
+    }
+
+    // Round rates make quotes whose rate is a whole number of tenths of a percent
+    private static List<Lender> randomLenders(Random random, int count, boolean roundRates) {
+        Supplier<BigDecimal> rates = roundRates ? () -> BigDecimal.valueOf(1 + random.nextInt(20), 2) :
+                TestMarkets.millionths(random, 300000);
+        return TestMarkets.randomLenders(count, rates, TestMarkets.pence(random, 50000));
+    }
+}
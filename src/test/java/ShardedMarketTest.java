@@ -0,0 +1,102 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedMarketTest {
+
+    private final Loan loan = new Loan();
+
+    @Test
+    public void shardsQuoteAsTheConcatenatedMarket() {
+        Random random = new Random(20);
+        for (int market = 0; market < 20; market++) {
+            List<Lender> lenders = TestMarkets.randomLenders(random, 50 + random.nextInt(500));
+            List<MarketBook> shards = new ArrayList<>();
+            int from = 0;
+            while (from < lenders.size()) {
+                int to = Math.min(lenders.size(), from + random.nextInt(lenders.size() / 3 + 1));
+                shards.add(new MarketBook(lenders.subList(from, to)));
+                from = to;
+            }
+
+            assertSameQuotes(new ShardedMarket(shards), new MarketBook(lenders));
+        }
+    }
+
+    @Test
+    public void rateRangesQuoteAsTheWholeMarket() {
+        Random random = new Random(21);
+        for (int market = 0; market < 20; market++) {
+            List<Lender> lenders = TestMarkets.randomLenders(random, 50 + random.nextInt(2000));
+            ShardedMarket sharded = ShardedMarket.byRate(lenders, 1 + random.nextInt(8), ForkJoinPool.commonPool());
+
+            assertSameQuotes(sharded, new MarketBook(lenders));
+            for (int s = 1; s < sharded.getShards().size(); s++) {
+                List<Lender> cheaper = sharded.getShards().get(s - 1).getLenders();
+                if (!cheaper.isEmpty() && sharded.getShards().get(s).size() > 0) {
+                    assertThat(cheaper.get(cheaper.size() - 1).getRate())
+                            .isLessThan(sharded.getShards().get(s).getLenders().get(0).getRate());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameRatesTakenInShardOrder() {
+        MarketBook first = new MarketBook(Arrays.asList(lender("A", "0.07", "600"), lender("B", "0.08", "600")));
+        MarketBook second = new MarketBook(Arrays.asList(lender("C", "0.07", "300"), lender("D", "0.070", "0"),
+                lender("E", "0.07", "900")));
+        ShardedMarket sharded = new ShardedMarket(
+                Arrays.asList(first, new MarketBook(Collections.emptyList()), second));
+
+        // A, C, D and E cover £1000, E with all its money
+        assertThat(sharded.weightedCovering(new BigDecimal("1000"))).isEqualByComparingTo("126");
+        assertThat(sharded.weightedCovering(new BigDecimal("900"))).isEqualByComparingTo("63");
+        assertThat(sharded.weightedCovering(new BigDecimal("2401"))).isNull();
+        assertThat(sharded.getTotalAvailable()).isEqualByComparingTo("2400");
+    }
+
+    @Test
+    public void loadFilesConcurrently() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        ShardedMarket sharded = ShardedMarket.load(Arrays.asList(csvPath, csvPath), new CSV(),
+                ForkJoinPool.commonPool());
+        List<Lender> twice = new ArrayList<>(new CSV().extractLenders(csvPath));
+        twice.addAll(new CSV().extractLenders(csvPath));
+
+        assertThat(sharded.getShards()).hasSize(2);
+        assertSameQuotes(sharded, new MarketBook(twice));
+    }
+
+    @Test(expected = IOException.class)
+    public void missingFile() throws IOException, URISyntaxException {
+        String csvPath = LoanTest.class.getResource("Market Data for Exercise - csv.csv").toURI().getPath();
+        ShardedMarket.load(Arrays.asList(csvPath, csvPath + "Missing"), new CSV(), ForkJoinPool.commonPool());
+    }
+
+    private void assertSameQuotes(ShardedMarket sharded, MarketBook whole) {
+        assertThat(sharded.getTotalAvailable()).isEqualByComparingTo(whole.getTotalAvailable());
+        TestMarkets.assertSameQuotes(amount -> loan.calculate(whole, amount),
+                amount -> loan.calculate(sharded, amount));
+        for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += Loan.AMOUNT_STEP) {
+            BigDecimal amountP = BigDecimal.valueOf(amount);
+            // 0 when the shards can not cover the amount
+            assertThat(sharded.lendersCovering(amountP)).as("Lenders of %d", amount)
+                    .isEqualTo(whole.indexCovering(amountP) + 1);
+        }
+    }
+
+    private static Lender lender(String name, String rate, String available) {
+        return new Lender(name, new BigDecimal(rate), new BigDecimal(available));
+    }
+}
@@ -0,0 +1,107 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Random markets, and the comparison of the quotes of two engines for every valid amount, shared by the tests of the
+ * quote engines.
+ */
+class TestMarkets {
+
+    private TestMarkets() {
+    }
+
+    /**
+     * Lenders with 80 rates from 0.040 to 0.119, so many lenders share a rate, and up to £1000, a tenth of them
+     * without money.
+     */
+    static List<Lender> randomLenders(Random random, int count) {
+        return randomLenders(count, thousandths(random, 80), someEmpty(random, pence(random, 100000)));
+    }
+
+    /**
+     * @return lenders named Lender0, Lender1... in that order
+     */
+    static List<Lender> randomLenders(int count, Supplier<BigDecimal> rates, Supplier<BigDecimal> available) {
+        List<Lender> lenders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lenders.add(new Lender("Lender" + i, rates.get(), available.get()));
+        }
+        return lenders;
+    }
+
+    /**
+     * @return rates from 0.040 up by 0.001, as many as asked
+     */
+    static Supplier<BigDecimal> thousandths(Random random, int rates) {
+        return () -> BigDecimal.valueOf(40 + random.nextInt(rates), 3);
+    }
+
+    /**
+     * @return rates below the maximum with the 6 decimals a {@link FixedPointBook} keeps
+     */
+    static Supplier<BigDecimal> millionths(Random random, int maxMillionths) {
+        return () -> BigDecimal.valueOf(random.nextInt(maxMillionths), 6);
+    }
+
+    /**
+     * @return money below the maximum, in pence
+     */
+    static Supplier<BigDecimal> pence(Random random, int maxPence) {
+        return () -> BigDecimal.valueOf(random.nextInt(maxPence), 2);
+    }
+
+    /**
+     * @return money of the supplier, none for a tenth of the lenders
+     */
+    static Supplier<BigDecimal> someEmpty(Random random, Supplier<BigDecimal> available) {
+        return () -> random.nextInt(10) == 0 ? BigDecimal.ZERO : available.get();
+    }
+
+    /**
+     * Asserts both engines cover the same amounts with the same rate and repayments.
+     */
+    static void assertSameQuotes(IntFunction<Optional<BorrowerInfo>> expected,
+                                 IntFunction<Optional<BorrowerInfo>> actual) {
+        assertSameQuotes(expected, actual, false);
+    }
+
+    /**
+     * Same as {@link #assertSameQuotes(IntFunction, IntFunction)} with the repayments compared as Main displays them.
+     */
+    static void assertSameDisplayedQuotes(IntFunction<Optional<BorrowerInfo>> expected,
+                                          IntFunction<Optional<BorrowerInfo>> actual) {
+        assertSameQuotes(expected, actual, true);
+    }
+
+    private static void assertSameQuotes(IntFunction<Optional<BorrowerInfo>> expected,
+                                         IntFunction<Optional<BorrowerInfo>> actual, boolean displayed) {
+        for (int amount = Loan.MIN_AMOUNT; amount <= Loan.MAX_AMOUNT; amount += Loan.AMOUNT_STEP) {
+            Optional<BorrowerInfo> expectedQuote = expected.apply(amount);
+            Optional<BorrowerInfo> actualQuote = actual.apply(amount);
+            assertThat(actualQuote.isPresent()).as("Quote of %d", amount).isEqualTo(expectedQuote.isPresent());
+            if (!expectedQuote.isPresent()) {
+                continue;
+            }
+            BorrowerInfo expectedInfo = expectedQuote.get();
+            BorrowerInfo actualInfo = actualQuote.get();
+            assertThat(actualInfo.getRequestedAmount()).isEqualByComparingTo(expectedInfo.getRequestedAmount());
+            assertThat(actualInfo.getRate()).as("Rate of %d", amount).isEqualByComparingTo(expectedInfo.getRate());
+            assertThat(repayment(actualInfo.getMonthlyRepayment(), displayed)).as("Monthly repayment of %d", amount)
+                    .isEqualByComparingTo(repayment(expectedInfo.getMonthlyRepayment(), displayed));
+            assertThat(repayment(actualInfo.getTotalRepayment(), displayed)).as("Total repayment of %d", amount)
+                    .isEqualByComparingTo(repayment(expectedInfo.getTotalRepayment(), displayed));
+        }
+    }
+
+    // Rounded down to the penny as Main prints it, when displayed
+    private static BigDecimal repayment(BigDecimal amount, boolean displayed) {
+        return displayed ? amount.setScale(2, BigDecimal.ROUND_DOWN) : amount;
+    }
+}